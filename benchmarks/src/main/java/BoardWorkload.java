@@ -0,0 +1,147 @@
+import minesweeper.benchmarks.Workload;
+
+import java.util.SplittableRandom;
+
+/**
+ * The benchmarked operations on a board of one size and mine density. This lives in the unnamed package with the
+ * game, so it can reach the package-private pieces such as BoardStorage and MinePlacer.
+ * @author Hudson Hadley
+ */
+public class BoardWorkload implements Workload {
+    /**
+     * The width of the boards
+     */
+    private final int width;
+    /**
+     * The height of the boards
+     */
+    private final int height;
+    /**
+     * How many mines are on the boards
+     */
+    private final int mines;
+    /**
+     * The row of the cell kept safe and revealed, so a reveal there opens up the board
+     */
+    private final int centerRow;
+    /**
+     * The column of the cell kept safe and revealed
+     */
+    private final int centerCol;
+
+    /**
+     * The seed of the next board, so constructing doesn't make the same board every time
+     */
+    private long seed;
+    /**
+     * The generator used to place mines directly
+     */
+    private final SplittableRandom random = new SplittableRandom(0);
+    /**
+     * Cells with their mines placed, numbered again and again
+     */
+    private final BoardStorage placed;
+    /**
+     * A board whose center has been revealed, used by the operations which only read a board
+     */
+    private final Board opened;
+    /**
+     * A board which is revealed and undone over and over
+     */
+    private final Board reopened;
+    /**
+     * The board made by prepareFreshBoard
+     */
+    private Board fresh;
+    /**
+     * Reused by render
+     */
+    private final StringBuilder output = new StringBuilder();
+
+    /**
+     * Sets up the boards the operations work on
+     * @param width the width of the boards
+     * @param height the height of the boards
+     * @param mines how many mines are on the boards
+     */
+    public BoardWorkload(int width, int height, int mines) {
+        this.width = width;
+        this.height = height;
+        this.mines = mines;
+        centerRow = height / 2;
+        centerCol = width / 2;
+
+        placed = new BoardStorage(width, height);
+        MinePlacer.place(placed, mines, new SplittableRandom(0));
+
+        opened = new Board(width, height, mines, 0, centerRow, centerCol);
+        opened.reveal(centerRow, centerCol);
+
+        reopened = new Board(width, height, mines, 0, centerRow, centerCol);
+        reopened.setHistoryLimit(Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Object construct() {
+        return new Board(width, height, mines, seed++);
+    }
+
+    @Override
+    public Object constructLazy() {
+        return new Board(width, height, mines, seed++, true);
+    }
+
+    @Override
+    public Object fillMines() {
+        BoardStorage cells = new BoardStorage(width, height);
+        MinePlacer.place(cells, mines, random);
+        return cells;
+    }
+
+    @Override
+    public Object allocateCells() {
+        return new BoardStorage(width, height);
+    }
+
+    @Override
+    public Object updateCells() {
+        BitboardNumbering.number(placed);
+        return placed;
+    }
+
+    @Override
+    public int revealAndUndo() {
+        reopened.reveal(centerRow, centerCol);
+        int revealed = reopened.getChanges().size();
+        reopened.undo();
+        return revealed;
+    }
+
+    @Override
+    public void prepareFreshBoard() {
+        fresh = new Board(width, height, mines, seed++, centerRow, centerCol);
+    }
+
+    @Override
+    public int revealFresh() {
+        fresh.reveal(centerRow, centerCol);
+        return fresh.getChanges().size();
+    }
+
+    @Override
+    public boolean hasWon() {
+        return opened.hasWon();
+    }
+
+    @Override
+    public String toStringBoard() {
+        return opened.toString();
+    }
+
+    @Override
+    public int render() throws Exception {
+        output.setLength(0);
+        new BoardRenderer(opened).render(output);
+        return output.length();
+    }
+}
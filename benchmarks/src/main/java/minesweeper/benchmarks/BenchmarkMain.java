@@ -0,0 +1,34 @@
+package minesweeper.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with allocation profiling always on, so every result comes with the bytes allocated per
+ * operation (gc.alloc.rate.norm). Takes the same arguments as the usual JMH main, such as a regular expression
+ * picking the benchmarks or -p size=9x9 to pick parameters.
+ * @author Hudson Hadley
+ */
+public class BenchmarkMain {
+    /**
+     * Nothing to construct, the benchmarks are run from main
+     */
+    private BenchmarkMain() {}
+
+    /**
+     * Runs the benchmarks
+     * @param args the JMH command line arguments
+     * @throws Exception if the arguments are invalid or a benchmark fails
+     */
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+
+        new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package minesweeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot paths of a board (construction, placing mines, numbering, revealing, checking for a win, and
+ * printing) over the three difficulties and larger custom boards, at several mine densities. Every benchmark returns
+ * its result so JMH can keep the JIT from throwing the work away.
+ * @author Hudson Hadley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+    /**
+     * The size of the board as width x height: the difficulties followed by larger custom boards
+     */
+    @Param({"9x9", "16x16", "30x16", "256x256", "1024x1024"})
+    public String size;
+    /**
+     * The fraction of cells which are mines
+     */
+    @Param({"0.05", "0.12", "0.21", "0.5"})
+    public double density;
+
+    /**
+     * The operations on a board of this size and density
+     */
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        String[] dimensions = size.split("x");
+        workload = Workload.create(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), density);
+    }
+
+    @Benchmark
+    public Object construct() {
+        return workload.construct();
+    }
+
+    @Benchmark
+    public Object constructLazy() {
+        return workload.constructLazy();
+    }
+
+    /**
+     * The cells have to start empty, so this includes allocating them; allocateCells measures that on its own
+     */
+    @Benchmark
+    public Object fillMines() {
+        return workload.fillMines();
+    }
+
+    @Benchmark
+    public Object allocateCells() {
+        return workload.allocateCells();
+    }
+
+    @Benchmark
+    public Object updateCells() {
+        return workload.updateCells();
+    }
+
+    /**
+     * Reveals the center and takes it back, so the board is ready for the next call without any setup between
+     * calls. Undoing costs about as much as the reveal, since both touch exactly the cells the flood fill opened.
+     */
+    @Benchmark
+    public int revealAndUndo() {
+        return workload.revealAndUndo();
+    }
+
+    @Benchmark
+    public boolean hasWon() {
+        return workload.hasWon();
+    }
+
+    @Benchmark
+    public String toStringBoard() {
+        return workload.toStringBoard();
+    }
+
+    @Benchmark
+    public int render() throws Exception {
+        return workload.render();
+    }
+}
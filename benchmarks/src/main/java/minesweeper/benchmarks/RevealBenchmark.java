@@ -0,0 +1,62 @@
+package minesweeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the first reveal of a fresh board, flood fill included. Every call needs a board which hasn't been
+ * revealed yet, made outside of the timing, so this only runs on boards large enough that the fill takes far longer
+ * than reading the timer; BoardBenchmark.revealAndUndo covers the small boards.
+ * @author Hudson Hadley
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RevealBenchmark {
+    /**
+     * The size of the board as width x height
+     */
+    @Param({"256x256", "1024x1024"})
+    public String size;
+    /**
+     * The fraction of cells which are mines
+     */
+    @Param({"0.05", "0.12", "0.21"})
+    public double density;
+
+    /**
+     * The operations on a board of this size and density
+     */
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        String[] dimensions = size.split("x");
+        workload = Workload.create(Integer.parseInt(dimensions[0]), Integer.parseInt(dimensions[1]), density);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpBoard() {
+        workload.prepareFreshBoard();
+    }
+
+    @Benchmark
+    public int reveal() {
+        return workload.revealFresh();
+    }
+}
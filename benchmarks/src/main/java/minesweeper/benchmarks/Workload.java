@@ -0,0 +1,84 @@
+package minesweeper.benchmarks;
+
+/**
+ * The operations which are benchmarked on a board of one size and mine density. The game lives in the unnamed
+ * package, which code in a named package can't refer to, while JMH only accepts benchmarks in a named package. So the
+ * benchmarks call the game through this interface, implemented by BoardWorkload in the unnamed package. It only has
+ * one implementation, so the JIT inlines every call and the indirection costs nothing.
+ * @author Hudson Hadley
+ */
+public interface Workload {
+    /**
+     * @return a new board with its mines placed from the next seed
+     */
+    Object construct();
+
+    /**
+     * @return a new board which waits for the first reveal to place its mines
+     */
+    Object constructLazy();
+
+    /**
+     * Places the mines on newly allocated cells
+     * @return the cells
+     */
+    Object fillMines();
+
+    /**
+     * @return newly allocated empty cells, the part of fillMines which isn't placing mines
+     */
+    Object allocateCells();
+
+    /**
+     * Numbers the cells of a board whose mines are already placed
+     * @return the cells
+     */
+    Object updateCells();
+
+    /**
+     * Reveals the center of a board and undoes it, leaving the board as it was
+     * @return how many cells the reveal opened
+     */
+    int revealAndUndo();
+
+    /**
+     * Makes a new board whose center is safe, for the next call to revealFresh
+     */
+    void prepareFreshBoard();
+
+    /**
+     * Reveals the center of the board made by prepareFreshBoard
+     * @return how many cells the reveal opened
+     */
+    int revealFresh();
+
+    /**
+     * @return if a board with its center revealed has been won
+     */
+    boolean hasWon();
+
+    /**
+     * @return a board with its center revealed as a string
+     */
+    String toStringBoard();
+
+    /**
+     * Renders a board with its center revealed into a reused buffer
+     * @return how many characters were rendered
+     * @throws Exception if the board can't be rendered
+     */
+    int render() throws Exception;
+
+    /**
+     * Creates the workload for a board size and density
+     * @param width the width of the boards
+     * @param height the height of the boards
+     * @param density the fraction of cells which are mines
+     * @return the workload
+     * @throws ReflectiveOperationException if BoardWorkload can't be found or created
+     */
+    static Workload create(int width, int height, double density) throws ReflectiveOperationException {
+        return (Workload) Class.forName("BoardWorkload").getConstructor(int.class, int.class, int.class)
+                .newInstance(width, height, (int) (width * height * density));
+    }
+}
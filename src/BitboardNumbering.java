@@ -0,0 +1,254 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Numbers every cell of a board by how many of its neighbors are mines, working on 64 cells at a time. The mines are
+ * first copied into a bitboard with one long per 64 columns of a row. For each word of a row, the eight neighbor
+ * directions are lined up with shifts and summed in parallel with bitwise adders into four bit planes, which hold the
+ * count (0 - 8) of every cell in the word. Since each row only depends on the mines of three rows, large boards are
+ * split into stripes of rows which are numbered in parallel on the common fork-join pool.
+ * @author Hudson Hadley
+ */
+public class BitboardNumbering {
+    /**
+     * Boards with at least this many cells are numbered in parallel
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+    /**
+     * About how many cells a stripe should hold before it is no longer split
+     */
+    private static final int STRIPE_CELLS = 1 << 16;
+
+    /**
+     * Nothing to construct, every method is static
+     */
+    private BitboardNumbering() {}
+
+    /**
+     * Sets the number of every cell which isn't a mine to how many of its neighbors are mines. The cells are expected
+     * to have no number yet.
+     * @param storage the storage of the board we want to number
+     */
+    public static void number(BoardStorage storage) {
+        if (storage.size() >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            numberParallel(storage);
+        } else {
+            long[] mines = toBitboard(storage);
+            numberRows(storage, mines, 0, storage.getHeight());
+        }
+    }
+
+    /**
+     * Numbers a board by splitting its rows into stripes on the common fork-join pool. The bitboard is filled first,
+     * and only then are the rows numbered, since a row needs the mines of the rows touching it.
+     * @param storage the storage of the board we want to number
+     */
+    public static void numberParallel(BoardStorage storage) {
+        int width = storage.getWidth();
+        int height = storage.getHeight();
+        long[] mines = new long[wordsPerRow(width) * height];
+        int stripeRows = Math.max(1, STRIPE_CELLS / Math.max(width, 1));
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        pool.invoke(new StripeTask(storage, mines, 0, height, stripeRows, false));
+        pool.invoke(new StripeTask(storage, mines, 0, height, stripeRows, true));
+    }
+
+    /**
+     * @param width the width of the board
+     * @return how many longs are needed to hold one row of the board
+     */
+    static int wordsPerRow(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /**
+     * Copies the mines of a board into a bitboard, where bit (col % 64) of word (row * wordsPerRow + col / 64) is set
+     * if the cell is a mine
+     * @param storage the storage of the board
+     * @return the bitboard of the mines
+     */
+    static long[] toBitboard(BoardStorage storage) {
+        int width = storage.getWidth();
+        int height = storage.getHeight();
+        long[] mines = new long[wordsPerRow(width) * height];
+        fillBitboard(storage, mines, 0, height);
+        return mines;
+    }
+
+    /**
+     * Copies the mines of some rows of a board into a bitboard
+     * @param storage the storage of the board
+     * @param mines the bitboard we are filling
+     * @param fromRow the first row to copy (inclusive)
+     * @param toRow the last row to copy (exclusive)
+     */
+    static void fillBitboard(BoardStorage storage, long[] mines, int fromRow, int toRow) {
+        int width = storage.getWidth();
+        int words = wordsPerRow(width);
+
+        for (int i = fromRow; i < toRow; i++) {
+            int rowStart = i * width;
+            int wordStart = i * words;
+            for (int j = 0; j < width; j++) {
+                if (storage.isMine(rowStart + j))
+                    mines[wordStart + (j >>> 6)] |= 1L << j;
+            }
+        }
+    }
+
+    /**
+     * Numbers the cells of some rows of a board from its bitboard. Each row only reads the bitboard of itself and the
+     * rows touching it, and only writes its own cells.
+     * @param storage the storage of the board
+     * @param mines the bitboard of the mines
+     * @param fromRow the first row to number (inclusive)
+     * @param toRow the last row to number (exclusive)
+     */
+    static void numberRows(BoardStorage storage, long[] mines, int fromRow, int toRow) {
+        int width = storage.getWidth();
+        int height = storage.getHeight();
+        int words = wordsPerRow(width);
+        long[] neighbors = new long[8];
+
+        for (int i = fromRow; i < toRow; i++) {
+            int above = i > 0 ? (i - 1) * words : -1;
+            int current = i * words;
+            int below = i < height - 1 ? (i + 1) * words : -1;
+
+            for (int w = 0; w < words; w++) {
+                // Line up each of the eight neighbors of every cell in this word
+                neighbors[0] = above < 0 ? 0 : west(mines, above, w, words);
+                neighbors[1] = above < 0 ? 0 : mines[above + w];
+                neighbors[2] = above < 0 ? 0 : east(mines, above, w, words);
+                neighbors[3] = west(mines, current, w, words);
+                neighbors[4] = east(mines, current, w, words);
+                neighbors[5] = below < 0 ? 0 : west(mines, below, w, words);
+                neighbors[6] = below < 0 ? 0 : mines[below + w];
+                neighbors[7] = below < 0 ? 0 : east(mines, below, w, words);
+
+                // The four bit planes of the count of every cell in this word. Each neighbor is added into the planes
+                // with a ripple of half adders.
+                long b0 = 0;
+                long b1 = 0;
+                long b2 = 0;
+                long b3 = 0;
+
+                for (long x : neighbors) {
+                    long carry = b0 & x;
+                    b0 ^= x;
+                    x = carry;
+                    carry = b1 & x;
+                    b1 ^= x;
+                    x = carry;
+                    carry = b2 & x;
+                    b2 ^= x;
+                    b3 |= carry;
+                }
+
+                // Only cells on the board which aren't mines and touch a mine need a number
+                int firstCol = w << 6;
+                long valid = width - firstCol >= 64 ? -1L : (1L << (width - firstCol)) - 1;
+                long numbered = (b0 | b1 | b2 | b3) & ~mines[current + w] & valid;
+
+                int rowStart = i * width + firstCol;
+                while (numbered != 0) {
+                    int bit = Long.numberOfTrailingZeros(numbered);
+                    int count = (int) (((b0 >>> bit) & 1) | (((b1 >>> bit) & 1) << 1)
+                            | (((b2 >>> bit) & 1) << 2) | (((b3 >>> bit) & 1) << 3));
+
+                    storage.setNumber(rowStart + bit, count);
+                    numbered &= numbered - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Lines every cell of a word up with its western neighbor (the cell one column to the left)
+     * @param mines the bitboard of the mines
+     * @param rowStart the index of the first word of the row
+     * @param w which word of the row we want
+     * @param words how many words are in a row
+     * @return a word where bit j is set if the cell left of column j is a mine
+     */
+    private static long west(long[] mines, int rowStart, int w, int words) {
+        long word = mines[rowStart + w] << 1;
+        return w > 0 ? word | (mines[rowStart + w - 1] >>> 63) : word;
+    }
+
+    /**
+     * Lines every cell of a word up with its eastern neighbor (the cell one column to the right)
+     * @param mines the bitboard of the mines
+     * @param rowStart the index of the first word of the row
+     * @param w which word of the row we want
+     * @param words how many words are in a row
+     * @return a word where bit j is set if the cell right of column j is a mine
+     */
+    private static long east(long[] mines, int rowStart, int w, int words) {
+        long word = mines[rowStart + w] >>> 1;
+        return w < words - 1 ? word | (mines[rowStart + w + 1] << 63) : word;
+    }
+
+    /**
+     * Fills the bitboard or numbers the cells of a stripe of rows, splitting the stripe in half until it is small
+     */
+    private static class StripeTask extends RecursiveAction {
+        /**
+         * The storage of the board
+         */
+        private final BoardStorage storage;
+        /**
+         * The bitboard of the mines
+         */
+        private final long[] mines;
+        /**
+         * The first row of the stripe (inclusive)
+         */
+        private final int fromRow;
+        /**
+         * The last row of the stripe (exclusive)
+         */
+        private final int toRow;
+        /**
+         * How many rows a stripe can have before it is split
+         */
+        private final int stripeRows;
+        /**
+         * True if the rows should be numbered, false if the bitboard should be filled
+         */
+        private final boolean numbering;
+
+        /**
+         * @param storage the storage of the board
+         * @param mines the bitboard of the mines
+         * @param fromRow the first row of the stripe (inclusive)
+         * @param toRow the last row of the stripe (exclusive)
+         * @param stripeRows how many rows a stripe can have before it is split
+         * @param numbering true if the rows should be numbered, false if the bitboard should be filled
+         */
+        StripeTask(BoardStorage storage, long[] mines, int fromRow, int toRow, int stripeRows, boolean numbering) {
+            this.storage = storage;
+            this.mines = mines;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.stripeRows = stripeRows;
+            this.numbering = numbering;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= stripeRows) {
+                if (numbering)
+                    numberRows(storage, mines, fromRow, toRow);
+                else
+                    fillBitboard(storage, mines, fromRow, toRow);
+                return;
+            }
+
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new StripeTask(storage, mines, fromRow, middle, stripeRows, numbering),
+                    new StripeTask(storage, mines, middle, toRow, stripeRows, numbering));
+        }
+    }
+}
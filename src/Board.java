@@ -1,16 +1,27 @@
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.Random;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * A minesweeper board with a width, height, amount of mines, and the cells holding the mines. The board
- * is stored as a 2D array with -1 representing a mine, 0 representing a blank space, and positive numbers
- * representing how many mines touch the cell (this includes the eight surrounding neighbors). Flags are assigned
- * by storing a separate 2d array of booleans.
+ * A minesweeper board with a width, height, amount of mines, and the cells holding the mines. The cells are kept in
+ * a flat BoardStorage with one byte per cell, where each byte holds whether the cell is a mine, flagged, or revealed,
+ * along with how many mines touch the cell (this includes the eight surrounding neighbors).
  * @author Hudson Hadley
  */
 public class Board {
+    /**
+     * A map from difficulty level (beginner, intermediate, expert) to size as {width, height, totalMines}
+     */
+    static final int[][] SIZES = new int[][] {{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
+    /**
+     * How many changed cells the undo history holds by default
+     */
+    private static final int DEFAULT_HISTORY_LIMIT = 1 << 20;
+
     /**
      * The width of the board
      */
@@ -23,117 +34,277 @@ public class Board {
      * How many mines are on the board
      */
     private int totalMines;
+    /**
+     * The seed the mines were placed with. The same seed always gives the same layout.
+     */
+    private long seed;
+    /**
+     * If the mines have been placed yet. Boards which keep the first click safe don't place them until then.
+     */
+    private boolean minesPlaced;
+    /**
+     * The row of the cell which was kept safe when placing the mines, or -1 if there wasn't one
+     */
+    private int safeRow = -1;
+    /**
+     * The column of the cell which was kept safe when placing the mines, or -1 if there wasn't one
+     */
+    private int safeCol = -1;
 
     /**
-     * A 2D array of Cells which describes the current board state
+     * The packed cells which describe the current board state
      */
-    private Cell[][] cells;
+    private BoardStorage cells;
     /**
      * The amount of flags on the board
      */
     private int flagCount;
-
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_BLACK = "\u001B[30m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_YELLOW = "\u001B[33m";
-    private static final String ANSI_BLUE = "\u001B[34m";
-    private static final String ANSI_WHITE = "\u001B[37m";
+    /**
+     * The amount of cells which aren't mines and haven't been revealed yet. The game is won once this reaches 0.
+     */
+    private int safeCellsLeft;
+    /**
+     * How many mines have been revealed. A mine has been hit once this is above 0.
+     */
+    private int minesRevealed;
+    /**
+     * If a cell has been revealed, so the game counts as started (only kept up to date while metrics are on)
+     */
+    private boolean started;
+    /**
+     * If the game has been won or lost, so its finish has been recorded (only kept up to date while metrics are on).
+     * Undoing the last move doesn't clear it, so redoing the move doesn't count the game twice.
+     */
+    private boolean finished;
+    /**
+     * The work stack of blank cells used by the flood fill in reveal, reused between calls
+     */
+    private int[] floodStack = new int[16];
+    /**
+     * The cells changed by the most recent move
+     */
+    private ChangeSet changes;
+    /**
+     * The listeners told about every move made on the board. Listeners may remove themselves while being told.
+     */
+    private final List<BoardListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * The moves which can be undone and redone
+     */
+    private final MoveHistory history = new MoveHistory(DEFAULT_HISTORY_LIMIT);
+    /**
+     * The engine which works out mine probabilities, made the first time they are asked for
+     */
+    private MineProbability probability;
 
     /**
-     * Creates a board with a defined width, height, and total amount of mines.
+     * Creates a board with a defined width, height, and total amount of mines, placed from a random seed.
      * @param width the width we want to assign to the board
      * @param height the height we want to assign to the board
      * @param totalMines the total amount of mines we want to assign to the board
-     * @throws IllegalArgumentException if totalMines is greater than the total amount of cells (width x height)
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height)
      * @throws NegativeArraySizeException if the width or height is negative
      */
     public Board(int width, int height, int totalMines) throws IllegalArgumentException, NegativeArraySizeException {
+        this(width, height, totalMines, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines. The mines are placed from the seed,
+     * so two boards made with the same arguments have the same layout.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param seed the seed used to place the mines
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height)
+     * @throws NegativeArraySizeException if the width or height is negative
+     */
+    public Board(int width, int height, int totalMines, long seed)
+            throws IllegalArgumentException, NegativeArraySizeException {
+        this(width, height, totalMines, seed, -1, -1);
+    }
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines, where a certain cell and (if there is
+     * room) its neighbors are kept free of mines, so a first click there always opens up the board. The mines are
+     * placed from the seed, so two boards made with the same arguments have the same layout.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param seed the seed used to place the mines
+     * @param safeRow the row of the cell to keep safe, or -1 to allow mines anywhere
+     * @param safeCol the column of the cell to keep safe, or -1 to allow mines anywhere
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height), or leaves no room for the safe cell
+     * @throws NegativeArraySizeException if the width or height is negative
+     * @throws IndexOutOfBoundsException if the safe cell is out of bounds
+     */
+    public Board(int width, int height, int totalMines, long seed, int safeRow, int safeCol)
+            throws IllegalArgumentException, NegativeArraySizeException, IndexOutOfBoundsException {
+        this(width, height, totalMines, seed, safeRow, safeCol, false);
+    }
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines placed from a random seed. If the
+     * first click is to be safe, nothing is placed until the first reveal, which keeps the revealed cell and (if there
+     * is room) its neighbors free of mines.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param firstClickSafe if the mines should wait to be placed around the first reveal
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height)
+     * @throws NegativeArraySizeException if the width or height is negative
+     */
+    public Board(int width, int height, int totalMines, boolean firstClickSafe)
+            throws IllegalArgumentException, NegativeArraySizeException {
+        this(width, height, totalMines, ThreadLocalRandom.current().nextLong(), firstClickSafe);
+    }
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines. If the first click is to be safe,
+     * nothing is placed until the first reveal, which keeps the revealed cell and (if there is room) its neighbors
+     * free of mines. The mines are placed from the seed, so the same seed and first click always give the same layout.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param seed the seed used to place the mines
+     * @param firstClickSafe if the mines should wait to be placed around the first reveal
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height)
+     * @throws NegativeArraySizeException if the width or height is negative
+     */
+    public Board(int width, int height, int totalMines, long seed, boolean firstClickSafe)
+            throws IllegalArgumentException, NegativeArraySizeException {
+        this(width, height, totalMines, seed, -1, -1, firstClickSafe);
+    }
+
+    /**
+     * Creates a board, placing the mines now unless they should wait for the first reveal
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param seed the seed used to place the mines
+     * @param safeRow the row of the cell to keep safe, or -1 to allow mines anywhere
+     * @param safeCol the column of the cell to keep safe, or -1 to allow mines anywhere
+     * @param firstClickSafe if the mines should wait to be placed around the first reveal
+     * @throws IllegalArgumentException if totalMines is negative or greater than the total amount of cells
+     * (width x height), or leaves no room for the safe cell
+     * @throws NegativeArraySizeException if the width or height is negative
+     * @throws IndexOutOfBoundsException if the safe cell is out of bounds
+     */
+    private Board(int width, int height, int totalMines, long seed, int safeRow, int safeCol, boolean firstClickSafe)
+            throws IllegalArgumentException, NegativeArraySizeException, IndexOutOfBoundsException {
         if (width < 0 || height < 0)
             throw new NegativeArraySizeException("width and height must be non-negative");
-        else if (totalMines > width * height)
+        else if (totalMines < 0)
+            throw new IllegalArgumentException("totalMines must be non-negative");
+        else if (totalMines > (long) width * height)
             throw new IllegalArgumentException("totalMines must be less than the allotted cells");
+        else if ((safeRow != -1 || safeCol != -1)
+                && (safeRow < 0 || safeRow >= height || safeCol < 0 || safeCol >= width))
+            throw new IndexOutOfBoundsException("invalid safe row and col pair");
 
         this.width = width;
         this.height = height;
         this.totalMines = totalMines;
+        this.seed = seed;
+
+        cells = new BoardStorage(width, height);
+        changes = new ChangeSet(width);
+        safeCellsLeft = cells.size() - totalMines;
 
-        cells = new Cell[height][width];
+        // The first reveal places the mines around itself
+        if (firstClickSafe) {
+            if (totalMines > cells.size() - 1)
+                throw new IllegalArgumentException("totalMines leaves no room for a safe first click");
+            return;
+        }
 
-        fillMines();
+        fillMines(new SplittableRandom(seed), safeRow, safeCol);
         updateCells();
     }
 
     /**
-     * Fills the board with the desired amount of mines
-     * @throws IllegalStateException if the board has already been constructed
+     * Recreates a board from the state of its cells, such as one read back from a snapshot. The numbers are worked
+     * out again from the mines, and the flag count, safe cells left, and whether a mine was hit from the flag and
+     * revealed bits.
+     * @param totalMines the total amount of mines on the board
+     * @param seed the seed the mines were (or will be) placed with
+     * @param cells the storage holding the mine, flag and revealed bits of every cell (taken over by the board)
+     * @param minesPlaced if the mines have been placed, rather than waiting for the first reveal
+     * @throws IllegalArgumentException if the cells don't hold totalMines mines, or hold revealed cells or mines
+     * before the mines have been placed
      */
-    private void fillMines() throws IllegalStateException {
-        // We need to generate a certain amount of random coordinates to fill with mines
-        Random random = new Random();
-
-        // We will store the coordinates as a coordinate list and randomly remove from it
-        ArrayList<Coordinate> availableCells = new ArrayList<>();
-
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                availableCells.add(new Coordinate(i, j));
-
-                // We can also take this time to actually instantiate each cell
-                cells[i][j] = new Cell();
+    Board(int totalMines, long seed, BoardStorage cells, boolean minesPlaced) throws IllegalArgumentException {
+        this.width = cells.getWidth();
+        this.height = cells.getHeight();
+        this.totalMines = totalMines;
+        this.seed = seed;
+        this.cells = cells;
+        this.minesPlaced = minesPlaced;
+        changes = new ChangeSet(width);
+
+        int mines = 0;
+        int revealedSafe = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            if (cells.hasFlag(i))
+                flagCount++;
+
+            if (cells.isMine(i)) {
+                mines++;
+                if (cells.isRevealed(i))
+                    minesRevealed++;
+            } else if (cells.isRevealed(i)) {
+                revealedSafe++;
             }
         }
 
-        // Keep adding mines until the amount of available cells is equal to the total minus the amount of mines we want
-        while (availableCells.size() > (width * height) - totalMines) {
-            int index = random.nextInt(availableCells.size());
-            Coordinate cellCoordinate = availableCells.get(index);
+        if (minesPlaced ? mines != totalMines : mines != 0 || revealedSafe != 0)
+            throw new IllegalArgumentException("cells don't match the amount of mines");
+        else if (totalMines > cells.size())
+            throw new IllegalArgumentException("totalMines must be less than the allotted cells");
 
-            cells[cellCoordinate.getRow()][cellCoordinate.getCol()].makeMine();
-            availableCells.remove(index);
-        }
+        safeCellsLeft = cells.size() - totalMines - revealedSafe;
+        started = revealedSafe > 0 || minesRevealed > 0;
+        finished = minesRevealed > 0 || revealedSafe > 0 && safeCellsLeft == 0;
+        if (minesPlaced)
+            updateCells();
     }
 
     /**
-     * Updates the board after it has been filled with mines such that the cell numbers correspond to how many of
-     * their neighbors are mines.
-     * @throws IllegalStateException if the board has already been constructed
+     * Fills the board with the desired amount of mines
+     * @param random the generator used to choose where the mines go
+     * @param safeRow the row of the cell to keep safe, or -1 to allow mines anywhere
+     * @param safeCol the column of the cell to keep safe, or -1 to allow mines anywhere
+     * @throws IllegalStateException if the mines have already been placed
      */
-    private void updateCells() throws IllegalStateException {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                if (!cells[i][j].isMine())
-                    cells[i][j].setNumber(getNeighborCount(i, j));
-            }
-        }
+    private void fillMines(SplittableRandom random, int safeRow, int safeCol) throws IllegalStateException {
+        if (minesPlaced)
+            throw new IllegalStateException("mines have already been placed");
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        MinePlacer.place(cells, totalMines, random, safeRow, safeCol);
+        if (Metrics.ENABLED)
+            Metrics.recordFillMines(start, cells.size());
+
+        minesPlaced = true;
+        this.safeRow = safeRow;
+        this.safeCol = safeCol;
     }
 
     /**
-     * Counts how many of the cells neighbors are mines
-     * @param row the row of the cell we want to check
-     * @param col the column of the cell we want to check
-     * @return the number of mines neighboring the cell
-     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     * Updates the board after it has been filled with mines such that the cell numbers correspond to how many of
+     * their neighbors are mines.
+     * @throws IllegalStateException if the board has already been constructed
      */
-    private int getNeighborCount(int row, int col) throws IndexOutOfBoundsException {
-        if (row < 0 || row >= height || col < 0 || col >= width)
-            throw new IndexOutOfBoundsException("invalid row and col pair");
-
-        int count = 0;
-
-        // Check the 3x3 box around a cell
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                // Make sure it's in the bounds
-                if ( (0 <= row + i && row + i < height) && (0 <= col + j && col + j < width) ) {
-
-                    if (cells[row + i][col + j].isMine())
-                        count++;
-                }
-            }
-        }
-
-        return count;
+    private void updateCells() throws IllegalStateException {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        BitboardNumbering.number(cells);
+        if (Metrics.ENABLED)
+            Metrics.recordUpdateCells(start, cells.size());
     }
 
     /**
@@ -150,6 +321,20 @@ public class Board {
         return height;
     }
 
+    /**
+     * @return how many mines are on the board
+     */
+    public int getTotalMines() {
+        return totalMines;
+    }
+
+    /**
+     * @return the seed the mines were placed with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
     /**
      * Tests if a cell at a row and column is a mine
      * @param row the row of the cell we want to test
@@ -160,7 +345,7 @@ public class Board {
     public boolean isMine(int row, int col) throws IndexOutOfBoundsException {
         if (row < 0 || row >= height || col < 0 || col >= width)
             throw new IndexOutOfBoundsException("invalid row and col pair");
-        return cells[row][col].isMine();
+        return cells.isMine(cells.index(row, col));
     }
 
     /**
@@ -173,12 +358,30 @@ public class Board {
         if (row < 0 || row >= height || col < 0 || col >= width)
             throw new IndexOutOfBoundsException("invalid row and col pair");
 
-        if (hasFlag(row, col))
+        int index = cells.index(row, col);
+
+        changes.clear();
+        toggleFlag(index);
+        history.record(MoveHistory.FLAG, changes);
+
+        for (BoardListener listener : listeners)
+            listener.flagMade(this, row, col);
+        fireCellsChanged();
+        fireFlagCountChanged();
+    }
+
+    /**
+     * Flips the flag of a cell, keeping count of the flags and recording the cell in the change set
+     * @param index the flat index of the cell
+     */
+    private void toggleFlag(int index) {
+        if (cells.hasFlag(index))
             flagCount--;
         else
             flagCount++;
 
-        cells[row][col].flag();
+        cells.flag(index);
+        changes.add(index);
     }
 
     /**
@@ -191,7 +394,7 @@ public class Board {
         if (row < 0 || row >= height || col < 0 || col >= width)
             throw new IndexOutOfBoundsException("invalid row and col pair");
 
-        return cells[row][col].hasFlag();
+        return cells.hasFlag(cells.index(row, col));
     }
 
     /**
@@ -204,11 +407,12 @@ public class Board {
         if (row < 0 || row >= height || col < 0 || col >= width)
             throw new IndexOutOfBoundsException("invalid row and col pair");
 
-        return cells[row][col].isRevealed();
+        return cells.isRevealed(cells.index(row, col));
     }
 
     /**
-     * Reveals a certain location and all surrounding blank spots
+     * Reveals a certain location and all surrounding blank spots. If the mines are waiting for the first reveal,
+     * they are placed first, keeping this location safe.
      * @param row the row of the cell we want to reveal
      * @param col the column of the cell we want to reveal
      * @return if the game continues or not
@@ -221,83 +425,421 @@ public class Board {
         else if (hasFlag(row, col))
             throw new IllegalArgumentException("Cell is flagged");
 
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (Metrics.ENABLED && !started) {
+            started = true;
+            Metrics.recordGameStarted(this);
+        }
+
+        // A board which keeps the first click safe places its mines around it now
+        if (!minesPlaced) {
+            fillMines(new SplittableRandom(seed), row, col);
+            updateCells();
+        }
+
+        int safeCellsBefore = safeCellsLeft;
+        int minesBefore = minesRevealed;
+
+        changes.clear();
+        boolean continues = revealIndex(cells.index(row, col));
+        if (!changes.isEmpty())
+            history.record(MoveHistory.REVEAL, changes);
+        if (Metrics.ENABLED)
+            Metrics.recordReveal(start, changes.size());
+
+        for (BoardListener listener : listeners)
+            listener.revealMade(this, row, col);
+        fireCellsChanged();
+        fireGameOver(safeCellsBefore, minesBefore, row, col);
+
+        return continues;
+    }
+
+    /**
+     * Chords a revealed number: if as many of its neighbors are flagged as the number says, every other hidden
+     * neighbor is revealed in one move. Any blank neighbors flood fill as usual, and the fills are merged, so the
+     * listeners are told about every changed cell at once and a single undo takes the whole chord back.
+     * @param row the row of the number
+     * @param col the column of the number
+     * @return if the game continues or not (true if nothing was revealed)
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public boolean chord(int row, int col) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            throw new IndexOutOfBoundsException("invalid row and col pair");
+
+        int index = cells.index(row, col);
+        if (!cells.isRevealed(index) || cells.isMine(index))
+            return true;
+
+        int top = Math.max(row - 1, 0);
+        int bottom = Math.min(row + 1, height - 1);
+        int left = Math.max(col - 1, 0);
+        int right = Math.min(col + 1, width - 1);
+
+        // The number has to be satisfied by the flags around it
+        int flags = 0;
+        for (int i = top; i <= bottom; i++) {
+            for (int j = left; j <= right; j++) {
+                if (cells.hasFlag(i * width + j))
+                    flags++;
+            }
+        }
+        if (flags != cells.getNumber(index))
+            return true;
+
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int safeCellsBefore = safeCellsLeft;
+        int minesBefore = minesRevealed;
+        int hitIndex = -1;
+        changes.clear();
+
+        for (int i = top; i <= bottom; i++) {
+            for (int j = left; j <= right; j++) {
+                int neighbor = i * width + j;
+                if (cells.isRevealed(neighbor) || cells.hasFlag(neighbor))
+                    continue;
+
+                if (!revealIndex(neighbor) && hitIndex == -1)
+                    hitIndex = neighbor;
+            }
+        }
+
+        if (!changes.isEmpty())
+            history.record(MoveHistory.REVEAL, changes);
+        if (Metrics.ENABLED)
+            Metrics.recordReveal(start, changes.size());
+
+        for (BoardListener listener : listeners)
+            listener.chordMade(this, row, col);
+        fireCellsChanged();
+        if (hitIndex != -1)
+            fireGameOver(safeCellsBefore, minesBefore, hitIndex / width, hitIndex % width);
+        else
+            fireGameOver(safeCellsBefore, minesBefore, row, col);
+
+        return hitIndex == -1;
+    }
+
+    /**
+     * Lets the listeners know if the most recent move ended the game
+     * @param safeCellsBefore how many safe cells were left before the move
+     * @param minesBefore how many mines were revealed before the move
+     * @param row the row of the mine, if one was hit
+     * @param col the column of the mine, if one was hit
+     */
+    private void fireGameOver(int safeCellsBefore, int minesBefore, int row, int col) {
+        if (minesBefore == 0 && minesRevealed > 0) {
+            if (Metrics.ENABLED && !finished) {
+                finished = true;
+                Metrics.recordGameFinished(this, false);
+            }
+            for (BoardListener listener : listeners)
+                listener.mineHit(this, row, col);
+        } else if (safeCellsBefore > 0 && safeCellsLeft == 0) {
+            if (Metrics.ENABLED && !finished) {
+                finished = true;
+                Metrics.recordGameFinished(this, true);
+            }
+            for (BoardListener listener : listeners)
+                listener.gameWon(this);
+        }
+    }
+
+    /**
+     * Takes back the most recent move which hasn't been undone. This only costs as much as the move changed, however
+     * many cells a reveal opened up.
+     * @return false if there was no move to undo
+     */
+    public boolean undo() {
+        if (!history.canUndo())
+            return false;
+
+        int move = history.undo();
+        changes.clear();
+
+        if (history.getKind(move) == MoveHistory.FLAG) {
+            toggleFlag(history.getCell(history.start(move)));
+        } else {
+            for (int i = history.start(move); i < history.end(move); i++) {
+                int index = history.getCell(i);
+                cells.hide(index);
+                changes.add(index);
+                if (cells.isMine(index))
+                    minesRevealed--;
+                else
+                    safeCellsLeft++;
+            }
+        }
+
+        for (BoardListener listener : listeners)
+            listener.undoMade(this);
+        fireCellsChanged();
+        if (history.getKind(move) == MoveHistory.FLAG)
+            fireFlagCountChanged();
+
+        return true;
+    }
+
+    /**
+     * Makes the most recently undone move again
+     * @return false if there was no move to redo
+     */
+    public boolean redo() {
+        if (!history.canRedo())
+            return false;
+
+        int move = history.redo();
+        int safeCellsBefore = safeCellsLeft;
+        int minesBefore = minesRevealed;
+        int hitIndex = -1;
+        changes.clear();
+
+        if (history.getKind(move) == MoveHistory.FLAG) {
+            toggleFlag(history.getCell(history.start(move)));
+        } else {
+            for (int i = history.start(move); i < history.end(move); i++) {
+                int index = history.getCell(i);
+                revealCell(index);
+                if (cells.isMine(index))
+                    hitIndex = index;
+            }
+        }
+
+        for (BoardListener listener : listeners)
+            listener.redoMade(this);
+        fireCellsChanged();
+        if (history.getKind(move) == MoveHistory.FLAG)
+            fireFlagCountChanged();
+        else
+            fireGameOver(safeCellsBefore, minesBefore, hitIndex / width, hitIndex % width);
+
+        return true;
+    }
+
+    /**
+     * @return true if there is a move which can be undone
+     */
+    public boolean canUndo() {
+        return history.canUndo();
+    }
+
+    /**
+     * @return true if there is an undone move which can be redone
+     */
+    public boolean canRedo() {
+        return history.canRedo();
+    }
+
+    /**
+     * Changes how many changed cells the undo history can hold across every move, so its memory stays bounded. Once
+     * it holds more, any moves waiting to be redone are forgotten, then the oldest moves, which can't be undone
+     * anymore. A single move larger than the limit clears the history.
+     * @param maxCells the most cells the history can hold (0 turns undo off)
+     * @throws IllegalArgumentException if maxCells is negative
+     */
+    public void setHistoryLimit(int maxCells) throws IllegalArgumentException {
+        history.setLimit(maxCells);
+    }
+
+    /**
+     * Reveals a cell and, if it is blank, every cell reachable from it through blank cells. Every cell revealed is
+     * recorded in the change set.
+     * @param index the flat index of the cell we want to reveal
+     * @return if the game continues or not
+     */
+    private boolean revealIndex(int index) {
         // If they hit a mine, game over
-        if (cells[row][col].isMine()) {
-            cells[row][col].reveal();
+        if (cells.isMine(index)) {
+            revealCell(index);
             return false;
-        } else if (!cells[row][col].isBlank()) { // If they hit a number, we just reveal that number and nothing else
-            cells[row][col].reveal();
+        } else if (!cells.isBlank(index)) { // If they hit a number, we just reveal that number and nothing else
+            revealCell(index);
             return true;
-        } else if (cells[row][col].isRevealed()) // If it is already revealed, do nothing
+        } else if (cells.isRevealed(index)) // If it is already revealed, do nothing
             return true;
 
-        /* Otherwise they must have hit a blank space. In this case, we must reveal every blank space touching which
-         * can be travelled to from the current blank space while only stepping on blank spaces going up, down, right,
-         * and left. Additionally, the "coastline" of numbers must also be revealed.
+        /* Otherwise they must have hit a blank space. In this case, we must reveal every blank space which can be
+         * travelled to from the current blank space while only stepping on blank spaces (including diagonally).
+         * Additionally, the "coastline" of numbers must also be revealed.
          */
+        floodFill(index);
 
-        // TREAT AS STACK
-        Deque<Coordinate> stack = new ArrayDeque<>();
-        cells[row][col].reveal();
-        stack.push(new Coordinate(row, col)); // Add the first one
-
-        // Keep going until we get back to the start
-        while (!stack.isEmpty()) {
-            // For every coordinate at the top of the stack, we need to reveal all number neighbors and venture to the
-            // next blank space
-            Coordinate current = stack.peek();
-            Coordinate next = new Coordinate(0, 0);
-            boolean nextFound = false;
-
-            // Check the 3x3 box around a cell
-            for (int i = -1; i <= 1; i++) {
-                for (int j = -1; j <= 1; j++) {
-                    // Make sure it's in the bounds
-                    if ( (0 <= current.getRow() + i && current.getRow() + i < height) &&
-                            (0 <= current.getCol() + j && current.getCol() + j < width) ) {
-
-                        // It is impossible for it to be a mine since it is adjacent to a blank space, so we are only
-                        // checking if it is not a blank space
-                        if (!cells[current.getRow() + i][current.getCol() + j].isBlank())
-                            cells[current.getRow() + i][current.getCol() + j].reveal(true); // Reveal the number
-
-                        // If it is blank, and it isn't revealed,
-                        // and we still have not found a next coordinate
-                        else if (!nextFound &&
-                                !cells[current.getRow() + i][current.getCol() + j].isRevealed()) {
-
-                            next = new Coordinate(current.getRow() + i, current.getCol() + j);
-                            nextFound = true;
-                        }
+        return true;
+    }
+
+    /**
+     * Reveals a blank cell along with every cell reachable from it through blank cells. Each blank cell is revealed
+     * as it is pushed onto the work stack, so it is pushed and scanned exactly once. The work stack is kept between
+     * calls and only grows when a fill is larger than any before it.
+     * @param start the flat index of the blank cell to start from
+     */
+    private void floodFill(int start) {
+        int size = 0;
+        revealCell(start);
+        floodStack[size++] = start;
+
+        while (size > 0) {
+            int current = floodStack[--size];
+            int row = current / width;
+            int col = current - row * width;
+
+            // Check the 3x3 box around a cell, clamped to the bounds of the board
+            int top = Math.max(row - 1, 0);
+            int bottom = Math.min(row + 1, height - 1);
+            int left = Math.max(col - 1, 0);
+            int right = Math.min(col + 1, width - 1);
+
+            for (int i = top; i <= bottom; i++) {
+                int rowStart = i * width;
+                for (int j = left; j <= right; j++) {
+                    int neighbor = rowStart + j;
+
+                    // It is impossible for it to be a mine since it is adjacent to a blank space. Numbers are revealed
+                    // and left alone, while blank spaces are revealed and visited later.
+                    if (cells.isRevealed(neighbor))
+                        continue;
+
+                    revealCell(neighbor);
+                    if (cells.isBlank(neighbor)) {
+                        if (size == floodStack.length)
+                            floodStack = Arrays.copyOf(floodStack, Math.min(size * 2, cells.size()));
+                        floodStack[size++] = neighbor;
                     }
                 }
             }
+        }
+    }
 
-            // If we found a space to go next, add it to the stack and reveal it
-            if (nextFound) {
-                stack.push(next);
-                cells[next.getRow()][next.getCol()].reveal(true);
-            } else // If we didn't find a place, backtrack
-                stack.pop();
+    /**
+     * Reveals a single cell (even if it has a flag), keeping count of how many safe cells are left
+     * @param index the flat index of the cell
+     */
+    private void revealCell(int index) {
+        if (cells.reveal(index)) {
+            changes.add(index);
+            if (!cells.isMine(index))
+                safeCellsLeft--;
+            else
+                minesRevealed++;
         }
+    }
 
-        return true;
+    /**
+     * Tells every listener about the cells changed by the most recent move, if there are any
+     */
+    private void fireCellsChanged() {
+        if (changes.isEmpty())
+            return;
+
+        for (BoardListener listener : listeners)
+            listener.cellsChanged(this, changes);
+    }
+
+    /**
+     * Tells every listener how many flags are on the board
+     */
+    private void fireFlagCountChanged() {
+        for (BoardListener listener : listeners)
+            listener.flagCountChanged(this, flagCount);
+    }
+
+    /**
+     * Registers a listener to be told about every move made on the board, and about the game being won or lost
+     * @param listener the listener we want to add
+     */
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener from being told about moves made on the board
+     * @param listener the listener we want to remove
+     */
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return the row of the cell which was kept safe when placing the mines, or -1 if there wasn't one (or the mines
+     * haven't been placed yet)
+     */
+    int getSafeRow() {
+        return safeRow;
+    }
+
+    /**
+     * @return the column of the cell which was kept safe when placing the mines, or -1 if there wasn't one (or the
+     * mines haven't been placed yet)
+     */
+    int getSafeCol() {
+        return safeCol;
+    }
+
+    /**
+     * @return the packed cells of the board, for code which needs the raw state such as saving it
+     */
+    BoardStorage getCells() {
+        return cells;
+    }
+
+    /**
+     * @return the cells changed by the most recent reveal or flag (only valid until the next move)
+     */
+    public ChangeSet getChanges() {
+        return changes;
+    }
+
+    /**
+     * Works out the probability that each cell is a mine, given only the revealed numbers and the total amount of
+     * mines. Flags are ignored.
+     * @return the probability of each cell being a mine, indexed by row * width + col. Revealed cells are 0, or 1 if
+     * they are a mine.
+     * @throws IllegalStateException if the revealed numbers can't all be satisfied
+     */
+    public double[] getMineProbabilities() throws IllegalStateException {
+        if (probability == null)
+            probability = new MineProbability(this);
+        return probability.compute();
+    }
+
+    /**
+     * @return true if the mines have been placed, which for a board keeping the first click safe is only once
+     * something has been revealed
+     */
+    public boolean hasPlacedMines() {
+        return minesPlaced;
+    }
+
+    /**
+     * @return true if a mine has been revealed
+     */
+    public boolean hasHitMine() {
+        return minesRevealed > 0;
+    }
+
+    /**
+     * @return the amount of flags on the board
+     */
+    public int getFlagCount() {
+        return flagCount;
     }
 
     /**
      * A game is won if the board is cleared of any non-mine cells. If every cell that isn't a mine has been revealed
-     * then the game is won.
+     * then the game is won. The amount of safe cells left is kept up to date as cells are revealed, so this doesn't
+     * need to look at the board.
      * @return true if the board is completed and the game is won
      */
     public boolean hasWon() {
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                // If it isn't a mine, and it isn't revealed, the game isn't won
-                if (!cells[i][j].isMine() && !cells[i][j].isRevealed())
-                    return false;
-            }
-        }
-        return true;
+        return safeCellsLeft == 0;
+    }
+
+    /**
+     * @return how many cells which aren't mines are still hidden
+     */
+    int getSafeCellsLeft() {
+        return safeCellsLeft;
     }
 
     /**
@@ -310,10 +852,12 @@ public class Board {
     public int getNumber(int row, int col) throws IllegalArgumentException, IndexOutOfBoundsException {
         if (row < 0 || row >= height || col < 0 || col >= width)
             throw new IndexOutOfBoundsException("Cell is out of bounds");
-        else if (cells[row][col].isMine())
+
+        int index = cells.index(row, col);
+        if (cells.isMine(index))
             throw new IllegalArgumentException("Cell is a mine");
 
-        return cells[row][col].getNumber();
+        return cells.getNumber(index);
     }
 
     /**
@@ -322,32 +866,18 @@ public class Board {
      * @return
      */
     public boolean isBlank(int row, int col) {
-        return cells[row][col].isBlank();
+        return cells.isBlank(cells.index(row, col));
     }
 
     @Override
     public String toString() {
-        StringBuilder output = new StringBuilder();
-        output.append("Mines left: ").append(totalMines - flagCount).append("\n\n");
-
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                if (cells[i][j].isRevealed() && cells[i][j].isMine())
-                    output.append(ANSI_BLACK + "X" + ANSI_BLACK);
-                else if (cells[i][j].isRevealed() && !cells[i][j].isMine())
-                    if (cells[i][j].isBlank())
-                        output.append(ANSI_WHITE).append(cells[i][j].getNumber()).append(ANSI_WHITE);
-                    else
-                        output.append(ANSI_YELLOW).append(cells[i][j].getNumber()).append(ANSI_YELLOW);
-                else if (cells[i][j].hasFlag())
-                    output.append(ANSI_RED + "!" + ANSI_RED);
-                else
-                    output.append(ANSI_BLUE).append("#").append(ANSI_BLUE);
-                output.append(" ");
-            }
-            output.append(ANSI_RESET).append("\n").append(ANSI_RESET);
+        // Every cell takes two characters, and a row changes color at most once per cell
+        StringBuilder output = new StringBuilder(64 + height * (width * 4 + 8));
+        try {
+            new BoardRenderer(this).render(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-
         return output.toString();
     }
 }
@@ -0,0 +1,301 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A single component which paints a whole board itself, rather than using a button for every cell. Only the cells
+ * inside the clip are painted, so when it sits in a JScrollPane only the cells in the viewport cost anything, and a
+ * move only repaints the area holding the cells it changed.
+ * @author Hudson Hadley
+ */
+public class BoardCanvas extends JComponent implements Scrollable {
+    /**
+     * The font of the numbers
+     */
+    private static final Font NUMBER_FONT = new Font("TimesNewRoman", Font.BOLD,15);
+    /**
+     * The color used by each number (note that index 0 is not used since no number is shown for a blank space)
+     */
+    private static final Color[] NUMBER_COLORS = new Color[]{
+            new Color(0, 0, 0), // 0
+            new Color(12, 183, 224), // 1
+            new Color(127, 206, 90), // 2
+            new Color(225, 101, 101), // 3
+            new Color(207, 88, 222), // 4
+            new Color(253, 148, 113), // 5
+            new Color(0, 68, 224), // 6
+            new Color(64, 180, 0), // 7
+            new Color(255, 255, 22), // 8
+    };
+
+    /**
+     * The background of the mine that was hit and of incorrect flags
+     */
+    private static final Color WRONG_COLOR = new Color(255, 100, 100);
+
+    /**
+     * The background of the cell suggested by a hint
+     */
+    private static final Color HINT_COLOR = new Color(120, 200, 120);
+
+    /**
+     * The image of the flag
+     */
+    private static final ImageIcon FLAG_IMAGE = new ImageIcon(System.getProperty("java.class.path") + "/../../../images/flag.png");
+
+    /**
+     * The image of the mine
+     */
+    private static final ImageIcon MINE_IMAGE = new ImageIcon(System.getProperty("java.class.path") + "/../../../images/mine.png");
+
+    /**
+     * The board being painted
+     */
+    private final Board board;
+    /**
+     * The length of one cell in pixels
+     */
+    private final int cellSize;
+    /**
+     * The largest size the viewport around the canvas should ask for
+     */
+    private final Dimension maxViewportSize;
+
+    /**
+     * If a mine has been hit, in which case every mine and incorrect flag is shown
+     */
+    private boolean endGame = false;
+    /**
+     * The row of the mine that was hit
+     */
+    private int hitRow = -1;
+    /**
+     * The column of the mine that was hit
+     */
+    private int hitCol = -1;
+
+    /**
+     * The row of the cell suggested by a hint, or -1 if there is no hint
+     */
+    private int hintRow = -1;
+    /**
+     * The column of the cell suggested by a hint, or -1 if there is no hint
+     */
+    private int hintCol = -1;
+
+    /**
+     * Creates a canvas for a board
+     * @param board the board we want to paint
+     * @param cellSize the length of one cell in pixels
+     * @param maxViewportSize the largest size the viewport around the canvas should ask for
+     */
+    public BoardCanvas(Board board, int cellSize, Dimension maxViewportSize) {
+        this.board = board;
+        this.cellSize = cellSize;
+        this.maxViewportSize = maxViewportSize;
+
+        setOpaque(true);
+        setPreferredSize(new Dimension(board.getWidth() * cellSize, board.getHeight() * cellSize));
+    }
+
+    /**
+     * @param y a y coordinate on the canvas in pixels
+     * @return the row at that coordinate, or -1 if it is off the board
+     */
+    public int rowAt(int y) {
+        int row = y < 0 ? -1 : y / cellSize;
+        return row < board.getHeight() ? row : -1;
+    }
+
+    /**
+     * @param x an x coordinate on the canvas in pixels
+     * @return the column at that coordinate, or -1 if it is off the board
+     */
+    public int colAt(int x) {
+        int col = x < 0 ? -1 : x / cellSize;
+        return col < board.getWidth() ? col : -1;
+    }
+
+    /**
+     * Repaints the area holding a set of changed cells. Swing merges the request with any other pending repaint.
+     * @param changes the cells which changed
+     */
+    public void repaintCells(ChangeSet changes) {
+        if (changes.isEmpty())
+            return;
+
+        int top = Integer.MAX_VALUE;
+        int bottom = -1;
+        int left = Integer.MAX_VALUE;
+        int right = -1;
+
+        for (int i = 0; i < changes.size(); i++) {
+            int row = changes.getRow(i);
+            int col = changes.getCol(i);
+            top = Math.min(top, row);
+            bottom = Math.max(bottom, row);
+            left = Math.min(left, col);
+            right = Math.max(right, col);
+        }
+
+        repaint(left * cellSize, top * cellSize, (right - left + 1) * cellSize, (bottom - top + 1) * cellSize);
+    }
+
+    /**
+     * Highlights the cell suggested by a hint, replacing any previous hint
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    public void showHint(int row, int col) {
+        clearHint();
+        hintRow = row;
+        hintCol = col;
+        repaint(col * cellSize, row * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Removes the highlight of the current hint, if there is one
+     */
+    public void clearHint() {
+        if (hintRow == -1)
+            return;
+
+        repaint(hintCol * cellSize, hintRow * cellSize, cellSize, cellSize);
+        hintRow = -1;
+        hintCol = -1;
+    }
+
+    /**
+     * Shows every mine, highlighting the mine that was hit as well as incorrect flags
+     * @param row the row of the cell that was hit
+     * @param col the column of the cell that was hit
+     */
+    public void showEndGame(int row, int col) {
+        endGame = true;
+        hitRow = row;
+        hitCol = col;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+
+        // Only go through the cells that are inside the clip
+        int top = Math.max(clip.y / cellSize, 0);
+        int bottom = Math.min((clip.y + clip.height - 1) / cellSize, board.getHeight() - 1);
+        int left = Math.max(clip.x / cellSize, 0);
+        int right = Math.min((clip.x + clip.width - 1) / cellSize, board.getWidth() - 1);
+
+        g.setFont(NUMBER_FONT);
+        for (int i = top; i <= bottom; i++) {
+            for (int j = left; j <= right; j++)
+                paintCell(g, i, j);
+        }
+
+        if (Metrics.ENABLED)
+            Metrics.recordPaint(start, Math.max(bottom - top + 1, 0) * Math.max(right - left + 1, 0));
+    }
+
+    /**
+     * Paints a single cell
+     * @param g the graphics we are painting with
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    private void paintCell(Graphics g, int row, int col) {
+        int x = col * cellSize;
+        int y = row * cellSize;
+
+        boolean revealed = board.isRevealed(row, col);
+        boolean mine = board.isMine(row, col);
+        boolean flagged = board.hasFlag(row, col);
+
+        Color background = revealed ? Color.WHITE : Color.DARK_GRAY;
+        ImageIcon icon = null;
+        int number = 0;
+
+        if (revealed) {
+            if (mine)
+                icon = MINE_IMAGE;
+            else
+                number = board.getNumber(row, col);
+        } else if (flagged) {
+            icon = FLAG_IMAGE;
+        }
+
+        // If we hit a mine, there are 3 things we are looking for
+        // 1. The mine that we hit -- red it and reveal it
+        // 2. A mine without a flag -- reveal it
+        // 3. An incorrect flag -- red it
+        if (endGame) {
+            if (mine) {
+                if (row == hitRow && col == hitCol) {
+                    icon = MINE_IMAGE;
+                    background = WRONG_COLOR;
+                } else if (!flagged) {
+                    icon = MINE_IMAGE;
+                    background = Color.WHITE;
+                }
+            } else if (flagged) {
+                background = WRONG_COLOR;
+            }
+        }
+
+        // Hidden cells are raised, unless the end of the game has shown them
+        boolean raised = !revealed && background == Color.DARK_GRAY;
+        if (raised && row == hintRow && col == hintCol)
+            background = HINT_COLOR;
+
+        g.setColor(background);
+        if (!raised) {
+            g.fillRect(x, y, cellSize, cellSize);
+            g.setColor(Color.LIGHT_GRAY);
+            g.drawRect(x, y, cellSize - 1, cellSize - 1);
+        } else {
+            g.fill3DRect(x, y, cellSize, cellSize, true);
+        }
+
+        if (icon != null) {
+            icon.paintIcon(this, g, x + (cellSize - icon.getIconWidth()) / 2,
+                    y + (cellSize - icon.getIconHeight()) / 2);
+        } else if (number > 0) {
+            FontMetrics metrics = g.getFontMetrics();
+            String text = "" + number;
+
+            g.setColor(NUMBER_COLORS[number]);
+            g.drawString(text, x + (cellSize - metrics.stringWidth(text)) / 2,
+                    y + (cellSize - metrics.getHeight()) / 2 + metrics.getAscent());
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        Dimension preferred = getPreferredSize();
+        return new Dimension(Math.min(preferred.width, maxViewportSize.width),
+                Math.min(preferred.height, maxViewportSize.height));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int visible = orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+        return Math.max(visible - cellSize, cellSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
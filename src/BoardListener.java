@@ -0,0 +1,71 @@
+/**
+ * Listens for moves made on a board, so a front end only has to redraw the cells that changed and only has to update
+ * its status when something actually happens. Only cellsChanged has to be implemented.
+ * @author Hudson Hadley
+ */
+public interface BoardListener {
+    /**
+     * Called after a move changes one or more cells on the board
+     * @param board the board the move was made on
+     * @param changes the cells the move changed (only valid until the next move)
+     */
+    void cellsChanged(Board board, ChangeSet changes);
+
+    /**
+     * Called once for every call to reveal which goes through, before the cells it changed are reported
+     * @param board the board the reveal was made on
+     * @param row the row which was asked to be revealed
+     * @param col the column which was asked to be revealed
+     */
+    default void revealMade(Board board, int row, int col) {}
+
+    /**
+     * Called once for every call to flag, before the cell it changed is reported
+     * @param board the board the flag was made on
+     * @param row the row which was flagged or unflagged
+     * @param col the column which was flagged or unflagged
+     */
+    default void flagMade(Board board, int row, int col) {}
+
+    /**
+     * Called once for every call to chord, before the cells it changed are reported
+     * @param board the board the chord was made on
+     * @param row the row of the number which was chorded
+     * @param col the column of the number which was chorded
+     */
+    default void chordMade(Board board, int row, int col) {}
+
+    /**
+     * Called once for every call to undo which took back a move, before the cells it changed are reported
+     * @param board the board the move was undone on
+     */
+    default void undoMade(Board board) {}
+
+    /**
+     * Called once for every call to redo which made a move again, before the cells it changed are reported
+     * @param board the board the move was redone on
+     */
+    default void redoMade(Board board) {}
+
+    /**
+     * Called after a flag is placed or removed
+     * @param board the board the flag was changed on
+     * @param flagCount the amount of flags now on the board
+     */
+    default void flagCountChanged(Board board, int flagCount) {}
+
+    /**
+     * Called when the last cell which isn't a mine is revealed. If the winning move is undone and then redone, this is
+     * called again.
+     * @param board the board which was cleared
+     */
+    default void gameWon(Board board) {}
+
+    /**
+     * Called when the first mine is revealed. If the losing move is undone and then redone, this is called again.
+     * @param board the board the mine was hit on
+     * @param row the row of the mine
+     * @param col the column of the mine
+     */
+    default void mineHit(Board board, int row, int col) {}
+}
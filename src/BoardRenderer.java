@@ -0,0 +1,166 @@
+import java.io.IOException;
+
+/**
+ * Draws a board as text with ANSI colors, writing straight to an Appendable rather than building the whole board in
+ * memory first. A color code is only written when the color actually changes, so a row of hidden cells costs one
+ * code rather than two per cell, and every cell is drawn from a cached token.
+ *
+ * It can also draw differentially: once the whole board has been drawn at the top of the terminal with redraw, only
+ * the cells changed by each move are drawn again, moving the cursor straight to each of them. A move then costs
+ * output in proportion to the cells it changed rather than to the size of the board. This assumes nothing scrolls
+ * the terminal in between, so whatever is printed under the board has to fit on the screen.
+ * @author Hudson Hadley
+ */
+public class BoardRenderer {
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_BLACK = "\u001B[30m";
+    private static final String ANSI_RED = "\u001B[31m";
+    private static final String ANSI_YELLOW = "\u001B[33m";
+    private static final String ANSI_BLUE = "\u001B[34m";
+    private static final String ANSI_WHITE = "\u001B[37m";
+    /**
+     * Clears the terminal and moves the cursor to the top left
+     */
+    private static final String CLEAR_SCREEN = "\u001B[2J\u001B[H";
+    /**
+     * Clears from the cursor to the end of the terminal
+     */
+    private static final String CLEAR_BELOW = "\u001B[J";
+    /**
+     * Clears from the cursor to the end of the line
+     */
+    private static final String CLEAR_LINE = "\u001B[K";
+
+    /**
+     * The text before the amount of mines left
+     */
+    private static final String MINES_LEFT = "Mines left: ";
+    /**
+     * How many lines are drawn above the first row (the mines left and a blank line)
+     */
+    private static final int HEADER_LINES = 2;
+
+    /**
+     * The token of a revealed mine
+     */
+    private static final int MINE = 9;
+    /**
+     * The token of a flagged cell
+     */
+    private static final int FLAG = 10;
+    /**
+     * The token of a hidden cell
+     */
+    private static final int HIDDEN = 11;
+    /**
+     * What each kind of cell is drawn as, where 0 - 8 are revealed numbers, followed by a mine, a flag, and a hidden
+     * cell. Every token is followed by the space between cells.
+     */
+    private static final String[] TOKENS = {"0 ", "1 ", "2 ", "3 ", "4 ", "5 ", "6 ", "7 ", "8 ", "X ", "! ", "# "};
+    /**
+     * The color of each token
+     */
+    private static final String[] COLORS = {ANSI_WHITE, ANSI_YELLOW, ANSI_YELLOW, ANSI_YELLOW, ANSI_YELLOW,
+            ANSI_YELLOW, ANSI_YELLOW, ANSI_YELLOW, ANSI_YELLOW, ANSI_BLACK, ANSI_RED, ANSI_BLUE};
+
+    /**
+     * The board being drawn
+     */
+    private final Board board;
+    /**
+     * The start of the escape moving the cursor to each row of the board, which only needs the column added
+     */
+    private final String[] rowPrefixes;
+
+    /**
+     * Creates a renderer for a board
+     * @param board the board we want to draw
+     */
+    public BoardRenderer(Board board) {
+        this.board = board;
+
+        // Terminal lines and columns start at 1
+        rowPrefixes = new String[board.getHeight()];
+        for (int i = 0; i < rowPrefixes.length; i++)
+            rowPrefixes[i] = "\u001B[" + (HEADER_LINES + i + 1) + ';';
+    }
+
+    /**
+     * Draws the whole board, starting wherever the output currently is
+     * @param out where the board is written
+     * @throws IOException if the output can't be written to
+     */
+    public void render(Appendable out) throws IOException {
+        BoardStorage cells = board.getCells();
+        int width = board.getWidth();
+
+        out.append(MINES_LEFT).append(Integer.toString(board.getTotalMines() - board.getFlagCount())).append("\n\n");
+
+        for (int i = 0; i < board.getHeight(); i++) {
+            String color = null;
+            int rowStart = i * width;
+            for (int j = 0; j < width; j++) {
+                int token = tokenOf(cells, rowStart + j);
+                if (COLORS[token] != color) {
+                    color = COLORS[token];
+                    out.append(color);
+                }
+                out.append(TOKENS[token]);
+            }
+            out.append(ANSI_RESET).append('\n');
+        }
+    }
+
+    /**
+     * Clears the terminal and draws the whole board at the top of it, so changes can be drawn over it afterwards
+     * @param out where the board is written
+     * @throws IOException if the output can't be written to
+     */
+    public void redraw(Appendable out) throws IOException {
+        out.append(CLEAR_SCREEN);
+        render(out);
+    }
+
+    /**
+     * Draws only the cells which changed, over a board drawn earlier by redraw, along with the mines left. The cursor
+     * is left on the line under the board, with everything below it cleared.
+     * @param out where the cells are written
+     * @param changes the cells which changed since the board was last drawn
+     * @throws IOException if the output can't be written to
+     */
+    public void renderChanges(Appendable out, ChangeSet changes) throws IOException {
+        BoardStorage cells = board.getCells();
+        int width = board.getWidth();
+
+        out.append(ANSI_RESET).append("\u001B[1;").append(Integer.toString(MINES_LEFT.length() + 1)).append('H')
+                .append(Integer.toString(board.getTotalMines() - board.getFlagCount())).append(CLEAR_LINE);
+
+        String color = null;
+        for (int i = 0; i < changes.size(); i++) {
+            int index = changes.get(i);
+            int token = tokenOf(cells, index);
+
+            // Each cell takes two columns
+            out.append(rowPrefixes[index / width]).append(Integer.toString(index % width * 2 + 1)).append('H');
+            if (COLORS[token] != color) {
+                color = COLORS[token];
+                out.append(color);
+            }
+            out.append(TOKENS[token].charAt(0));
+        }
+
+        out.append(ANSI_RESET).append("\u001B[").append(Integer.toString(HEADER_LINES + board.getHeight() + 1))
+                .append(";1H").append(CLEAR_BELOW);
+    }
+
+    /**
+     * @param cells the cells of the board
+     * @param index the flat index of a cell
+     * @return the token the cell is drawn as
+     */
+    private static int tokenOf(BoardStorage cells, int index) {
+        if (!cells.isRevealed(index))
+            return cells.hasFlag(index) ? FLAG : HIDDEN;
+        return cells.isMine(index) ? MINE : cells.getNumber(index);
+    }
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a board to a file and loads it back. The file is a fixed header followed by three bit planes, one bit per
+ * cell each, holding which cells are mines, flagged, and revealed. The numbers aren't stored since they can be worked
+ * out from the mines. Both directions map the file into memory, so even boards with millions of cells take a few
+ * milliseconds.
+ *
+ * The header is, in big-endian order:
+ *      1. the magic number "MSWP" (4 bytes)
+ *      2. the format version (2 bytes)
+ *      3. flags, where bit 0 is set if the mines have been placed (1 byte)
+ *      4. a reserved byte, always 0
+ *      5. the width, height, and total amount of mines (4 bytes each)
+ *      6. the seed (8 bytes)
+ *      7. padding up to 32 bytes, so the planes start on an 8 byte boundary
+ * Each plane is then ceil(width * height / 64) longs, where cell i is bit i % 64 of long i / 64.
+ * @author Hudson Hadley
+ */
+public class BoardSnapshot {
+    /**
+     * The first four bytes of every snapshot
+     */
+    private static final int MAGIC = 0x4D535750;
+    /**
+     * The version of the format written by this class
+     */
+    private static final short VERSION = 1;
+    /**
+     * The size of the header in bytes
+     */
+    private static final int HEADER_BYTES = 32;
+    /**
+     * The flag set if the mines have been placed
+     */
+    private static final int MINES_PLACED = 0x01;
+
+    /**
+     * Nothing to construct, every method is static
+     */
+    private BoardSnapshot() {}
+
+    /**
+     * Saves a board, replacing the file if it already exists
+     * @param board the board we want to save
+     * @param path where we want to save it
+     * @throws IOException if the file can't be written
+     */
+    public static void save(Board board, Path path) throws IOException {
+        BoardStorage cells = board.getCells();
+        int words = wordsFor(cells.size());
+        long fileSize = HEADER_BYTES + 3L * words * Long.BYTES;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            buffer.put((byte) (board.hasPlacedMines() ? MINES_PLACED : 0));
+            buffer.put((byte) 0);
+            buffer.putInt(board.getWidth());
+            buffer.putInt(board.getHeight());
+            buffer.putInt(board.getTotalMines());
+            buffer.putLong(board.getSeed());
+
+            // Each plane is written 64 cells at a time, and all three are built in the same pass over the cells
+            int mineStart = HEADER_BYTES;
+            int flagStart = mineStart + words * Long.BYTES;
+            int revealedStart = flagStart + words * Long.BYTES;
+
+            for (int w = 0; w < words; w++) {
+                long mines = 0;
+                long flags = 0;
+                long revealed = 0;
+
+                int end = Math.min(cells.size(), (w + 1) * 64);
+                for (int i = w * 64; i < end; i++) {
+                    int cell = cells.get(i);
+                    long bit = 1L << (i & 63);
+                    if ((cell & BoardStorage.MINE) != 0)
+                        mines |= bit;
+                    if ((cell & BoardStorage.FLAG) != 0)
+                        flags |= bit;
+                    if ((cell & BoardStorage.REVEALED) != 0)
+                        revealed |= bit;
+                }
+
+                buffer.putLong(mineStart + w * Long.BYTES, mines);
+                buffer.putLong(flagStart + w * Long.BYTES, flags);
+                buffer.putLong(revealedStart + w * Long.BYTES, revealed);
+            }
+
+            buffer.force();
+        }
+    }
+
+    /**
+     * Loads a board which was saved with save. The board plays on exactly like the board which was saved, although
+     * the listeners of the saved board aren't brought along.
+     * @param path where the board was saved
+     * @return the board
+     * @throws IOException if the file can't be read or isn't a valid snapshot
+     */
+    public static Board load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES)
+                throw new IOException("snapshot is too short");
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("not a board snapshot");
+
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("unsupported snapshot version " + version);
+
+            int flags = buffer.get();
+            buffer.get();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int totalMines = buffer.getInt();
+            long seed = buffer.getLong();
+
+            if (width < 0 || height < 0 || (long) width * height > Integer.MAX_VALUE)
+                throw new IOException("invalid snapshot dimensions");
+
+            BoardStorage cells = new BoardStorage(width, height);
+            int words = wordsFor(cells.size());
+            if (fileSize != HEADER_BYTES + 3L * words * Long.BYTES)
+                throw new IOException("snapshot size doesn't match its dimensions");
+
+            int mineStart = HEADER_BYTES;
+            int flagStart = mineStart + words * Long.BYTES;
+            int revealedStart = flagStart + words * Long.BYTES;
+
+            for (int w = 0; w < words; w++) {
+                long mines = buffer.getLong(mineStart + w * Long.BYTES);
+                long flagged = buffer.getLong(flagStart + w * Long.BYTES);
+                long revealed = buffer.getLong(revealedStart + w * Long.BYTES);
+
+                // Only visit the cells with at least one bit set
+                long any = mines | flagged | revealed;
+                while (any != 0) {
+                    int bit = Long.numberOfTrailingZeros(any);
+                    any &= any - 1;
+
+                    int index = w * 64 + bit;
+                    if (index >= cells.size())
+                        throw new IOException("snapshot has bits past the last cell");
+
+                    int cell = 0;
+                    if ((mines >>> bit & 1) != 0)
+                        cell |= BoardStorage.MINE;
+                    if ((flagged >>> bit & 1) != 0)
+                        cell |= BoardStorage.FLAG;
+                    if ((revealed >>> bit & 1) != 0)
+                        cell |= BoardStorage.REVEALED;
+                    cells.set(index, (byte) cell);
+                }
+            }
+
+            try {
+                return new Board(totalMines, seed, cells, (flags & MINES_PLACED) != 0);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("snapshot is inconsistent: " + e.getMessage(), e);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("snapshot is too short", e);
+        }
+    }
+
+    /**
+     * @param size the amount of cells
+     * @return how many longs a plane of that many cells takes
+     */
+    private static int wordsFor(int size) {
+        return (size + 63) >>> 6;
+    }
+}
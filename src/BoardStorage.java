@@ -0,0 +1,190 @@
+/**
+ * The flat storage behind a minesweeper board. Every cell is packed into a single byte, stored row by row, so the
+ * cell at (row, col) lives at index row * width + col. The low four bits hold the number of the cell (0 - 8), and
+ * the remaining bits mark the cell as a mine, flagged, or revealed.
+ * @author Hudson Hadley
+ */
+public class BoardStorage {
+    /**
+     * The bits of a cell which hold its number
+     */
+    static final int NUMBER_MASK = 0x0F;
+    /**
+     * The bit set if the cell is a mine
+     */
+    static final int MINE = 0x10;
+    /**
+     * The bit set if the cell is flagged
+     */
+    static final int FLAG = 0x20;
+    /**
+     * The bit set if the cell is revealed
+     */
+    static final int REVEALED = 0x40;
+
+    /**
+     * The width of the board
+     */
+    private final int width;
+    /**
+     * The height of the board
+     */
+    private final int height;
+    /**
+     * One byte per cell, stored row by row
+     */
+    private final byte[] cells;
+
+    /**
+     * Creates storage for a width x height board where every cell is blank, unflagged, and hidden.
+     * @param width the width of the board
+     * @param height the height of the board
+     * @throws NegativeArraySizeException if the width or height is negative
+     * @throws IllegalArgumentException if the board has more cells than can be stored
+     */
+    public BoardStorage(int width, int height) throws NegativeArraySizeException, IllegalArgumentException {
+        if (width < 0 || height < 0)
+            throw new NegativeArraySizeException("width and height must be non-negative");
+        else if ((long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("board has too many cells");
+
+        this.width = width;
+        this.height = height;
+        this.cells = new byte[width * height];
+    }
+
+    /**
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the amount of cells in the storage
+     */
+    public int size() {
+        return cells.length;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the flat index of the cell
+     */
+    public int index(int row, int col) {
+        return row * width + col;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return true if the cell is a mine
+     */
+    public boolean isMine(int index) {
+        return (cells[index] & MINE) != 0;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return true if the cell is flagged
+     */
+    public boolean hasFlag(int index) {
+        return (cells[index] & FLAG) != 0;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return true if the cell is revealed
+     */
+    public boolean isRevealed(int index) {
+        return (cells[index] & REVEALED) != 0;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return true if the cell is blank (not a mine and touching no mines)
+     */
+    public boolean isBlank(int index) {
+        return (cells[index] & (MINE | NUMBER_MASK)) == 0;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return the number of the cell, or -1 if it is a mine
+     */
+    public int getNumber(int index) {
+        int cell = cells[index];
+        return (cell & MINE) != 0 ? -1 : cell & NUMBER_MASK;
+    }
+
+    /**
+     * Sets the number of a cell, leaving the rest of its state untouched
+     * @param index the flat index of the cell
+     * @param number the number we want to assign to the cell (0 - 8)
+     */
+    public void setNumber(int index, int number) {
+        cells[index] = (byte) ((cells[index] & ~NUMBER_MASK) | number);
+    }
+
+    /**
+     * Makes the cell a mine
+     * @param index the flat index of the cell
+     */
+    public void makeMine(int index) {
+        cells[index] |= MINE;
+    }
+
+    /**
+     * Flips the flag of a cell. If the cell was flagged, it will switch to not being flagged and vice versa.
+     * @param index the flat index of the cell
+     */
+    public void flag(int index) {
+        cells[index] ^= FLAG;
+    }
+
+    /**
+     * Reveals a cell, regardless of whether it is flagged
+     * @param index the flat index of the cell
+     * @return true if the cell was not revealed before
+     */
+    public boolean reveal(int index) {
+        int cell = cells[index];
+        if ((cell & REVEALED) != 0)
+            return false;
+
+        cells[index] = (byte) (cell | REVEALED);
+        return true;
+    }
+
+    /**
+     * Hides a cell again, such as when a reveal is undone
+     * @param index the flat index of the cell
+     */
+    public void hide(int index) {
+        cells[index] &= ~REVEALED;
+    }
+
+    /**
+     * @param index the flat index of the cell
+     * @return the raw packed state of the cell
+     */
+    byte get(int index) {
+        return cells[index];
+    }
+
+    /**
+     * Overwrites the raw packed state of a cell
+     * @param index the flat index of the cell
+     * @param state the packed state we want to assign
+     */
+    void set(int index, byte state) {
+        cells[index] = state;
+    }
+}
@@ -0,0 +1,89 @@
+import java.util.Arrays;
+
+/**
+ * The cells changed by a single move on a board, stored as flat indices (row * width + col). A board reuses the same
+ * change set for every move, so its contents are only valid until the next move is made.
+ * @author Hudson Hadley
+ */
+public class ChangeSet {
+    /**
+     * The width of the board the indices belong to
+     */
+    private final int width;
+    /**
+     * The flat indices of the changed cells. Only the first size entries are used.
+     */
+    private int[] indices = new int[16];
+    /**
+     * How many cells have changed
+     */
+    private int size;
+
+    /**
+     * Creates an empty change set for a board with a certain width
+     * @param width the width of the board
+     */
+    public ChangeSet(int width) {
+        this.width = width;
+    }
+
+    /**
+     * @return how many cells have changed
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if no cells have changed
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i which of the changed cells we want (0 to size - 1)
+     * @return the flat index of the changed cell
+     * @throws IndexOutOfBoundsException if i is out of bounds
+     */
+    public int get(int i) throws IndexOutOfBoundsException {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("invalid change");
+        return indices[i];
+    }
+
+    /**
+     * @param i which of the changed cells we want (0 to size - 1)
+     * @return the row of the changed cell
+     * @throws IndexOutOfBoundsException if i is out of bounds
+     */
+    public int getRow(int i) throws IndexOutOfBoundsException {
+        return get(i) / width;
+    }
+
+    /**
+     * @param i which of the changed cells we want (0 to size - 1)
+     * @return the column of the changed cell
+     * @throws IndexOutOfBoundsException if i is out of bounds
+     */
+    public int getCol(int i) throws IndexOutOfBoundsException {
+        return get(i) % width;
+    }
+
+    /**
+     * Records a changed cell
+     * @param index the flat index of the cell
+     */
+    void add(int index) {
+        if (size == indices.length)
+            indices = Arrays.copyOf(indices, size * 2);
+        indices[size++] = index;
+    }
+
+    /**
+     * Forgets every recorded cell, keeping the space for the next move
+     */
+    void clear() {
+        size = 0;
+    }
+}
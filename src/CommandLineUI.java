@@ -1,3 +1,13 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class CommandLineUI {
@@ -19,6 +29,7 @@ public class CommandLineUI {
 
         while (true) {
             System.out.print(message);
+            System.out.flush();
             try {
                 num = Integer.parseInt(scanner.nextLine());
 
@@ -35,52 +46,218 @@ public class CommandLineUI {
         return num;
     }
 
-    public static void main(String[] args) {
+    /**
+     * Plays a game from a stream of commands, one per line, without any prompts. Nothing is printed for a move
+     * unless it goes wrong, so moves cost no more than the board takes to make them.
+     *      r row col   reveals a cell
+     *      f row col   flags or unflags a cell
+     *      c row col   chords a number
+     *      p           prints the board
+     * Rows and columns start at 1, like the prompts. Blank lines and lines starting with # are skipped. Commands
+     * which can't be made are reported with their line number and skipped, and the game stops once it is won or lost.
+     * @param board the board the game is played on
+     * @param in the commands
+     * @param out where the boards and any problems are printed
+     * @return how many moves were made
+     * @throws IOException if the commands can't be read or the board can't be drawn
+     */
+    static long playBatch(Board board, BufferedReader in, PrintStream out) throws IOException {
+        // The board is drawn straight into the output rather than built up as a string first
+        BoardRenderer renderer = new BoardRenderer(board);
+        long moves = 0;
+        long lineNumber = 0;
+
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#')
+                continue;
+
+            char command = Character.toLowerCase(line.charAt(0));
+            if (command == 'p' && line.length() == 1) {
+                renderer.render(out);
+                out.println();
+                continue;
+            }
+
+            // Read the row and column straight out of the line rather than splitting it
+            int row = -1;
+            int col = -1;
+            int position = 1;
+            boolean valid = line.length() > 1 && line.charAt(1) == ' ';
+            for (int k = 0; k < 2 && valid; k++) {
+                while (position < line.length() && line.charAt(position) == ' ')
+                    position++;
+
+                int value = 0;
+                int digits = 0;
+                while (position < line.length() && Character.isDigit(line.charAt(position)) && digits < 9) {
+                    value = value * 10 + line.charAt(position++) - '0';
+                    digits++;
+                }
+
+                valid = digits > 0 && (position == line.length() || line.charAt(position) == ' ');
+                if (k == 0)
+                    row = value - 1;
+                else
+                    col = value - 1;
+            }
+
+            if (!valid || position != line.length() || (command != 'r' && command != 'f' && command != 'c')) {
+                out.println("line " + lineNumber + ": expected r, f or c with a row and column, or p");
+                continue;
+            } else if (row < 0 || row >= board.getHeight() || col < 0 || col >= board.getWidth()) {
+                out.println("line " + lineNumber + ": no cell at row " + (row + 1) + ", column " + (col + 1));
+                continue;
+            }
+
+            if (command == 'f') {
+                if (board.isRevealed(row, col)) {
+                    out.println("line " + lineNumber + ": spot already revealed");
+                    continue;
+                }
+                board.flag(row, col);
+            } else if (command == 'c') {
+                if (!board.isRevealed(row, col) || board.isMine(row, col)) {
+                    out.println("line " + lineNumber + ": can only chord a revealed number");
+                    continue;
+                }
+                board.chord(row, col);
+            } else {
+                if (board.hasFlag(row, col)) {
+                    out.println("line " + lineNumber + ": remove flag first");
+                    continue;
+                }
+                board.reveal(row, col);
+            }
+            moves++;
+
+            if (board.hasHitMine()) {
+                out.println("Hit mine on line " + lineNumber);
+                break;
+            } else if (board.hasWon()) {
+                out.println("Minefield cleared on line " + lineNumber);
+                break;
+            }
+        }
+
+        renderer.render(out);
+        out.println();
+        return moves;
+    }
+
+    /**
+     * Plays a game in the terminal.
+     * Arguments (optional): --diff to redraw only the cells each move changes rather than the whole board, or
+     * --batch width height mines seed [file] to play the commands in the file (or standard input) without prompts
+     * @param args the command line arguments
+     * @throws IOException if the board can't be drawn or the commands can't be read
+     */
+    public static void main(String[] args) throws IOException {
+        boolean differential = args.length > 0 && args[0].equals("--diff");
+
+        // Everything printed collects in one buffer, which is only flushed when we wait for input
+        System.setOut(new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16),
+                false));
+
+        if (args.length > 0 && args[0].equals("--batch")) {
+            if (args.length != 5 && args.length != 6) {
+                System.err.println("Usage: CommandLineUI --batch width height mines seed [file]");
+                System.exit(2);
+            }
+
+            Board board = new Board(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]),
+                    Long.parseLong(args[4]));
+            MoveJournal journal = null;
+            try {
+                journal = MoveJournal.startIfEnabled(board);
+            } catch (IOException e) {
+                System.err.println("Could not start the journal: " + e.getMessage());
+            }
+
+            long start = System.nanoTime();
+            long moves;
+            try (BufferedReader in = args.length == 6 ? Files.newBufferedReader(Paths.get(args[5]))
+                    : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)) {
+                moves = playBatch(board, in, System.out);
+            }
+
+            // The commands may run out before the game is over, which leaves the journal open
+            if (journal != null)
+                journal.close();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            if (Metrics.ENABLED)
+                System.out.println(Metrics.dump());
+            System.out.flush();
+            System.err.printf("%d moves in %.3f s (%.0f moves/s)%n", moves, seconds, moves / seconds);
+            return;
+        }
+
         Board board;
 
         Scanner inScanner = new Scanner(System.in);
         int difficulty = getNumber(inScanner,
                 "Enter difficulty (1: Beginner, 2: Intermediate, 3: Expert): ", 1, 3);
 
-        if (difficulty == 1)
-            board = new Board(9, 9, 10);
-        else if (difficulty == 2)
-            board = new Board(16, 16, 40);
-        else // difficulty == 3
-            board = new Board(30, 16, 99);
+        int[] size = Board.SIZES[difficulty - 1];
+        board = new Board(size[0], size[1], size[2]);
+
+        // Record the moves if journaling is turned on (the journal closes itself when the game ends)
+        MoveJournal journal = null;
+        try {
+            journal = MoveJournal.startIfEnabled(board);
+        } catch (IOException e) {
+            System.err.println("Could not start the journal: " + e.getMessage());
+        }
+
 
+        BoardRenderer renderer = new BoardRenderer(board);
+        if (differential)
+            renderer.redraw(System.out);
 
         boolean hitMine = false;
-        boolean flagging;
+        char action;
         while (!board.hasWon()) {
-            System.out.println(board);
+            if (!differential) {
+                renderer.render(System.out);
+                System.out.println();
+            }
 
-            System.out.print("Flagging? (y/n): ");
+            System.out.print("Flagging? (y/n, or c to chord): ");
+            System.out.flush();
 
             while (true) {
                 try {
-                    char answer = inScanner.nextLine().toLowerCase().charAt(0);
-
+                    action = inScanner.nextLine().toLowerCase().charAt(0);
 
-                    if (answer == 'y') {
-                        flagging = true;
+                    if (action == 'y' || action == 'n' || action == 'c')
                         break;
-                    } else if (answer == 'n') {
-                        flagging = false;
-                        break;
-                    }
                 } catch (Exception ignore) {}
             }
 
             int row = getNumber(inScanner, "Enter a row: ", 1, board.getHeight());
             int col = getNumber(inScanner, "Enter a column: ", 1, board.getWidth());
 
-            if (flagging) {
+            if (action == 'y') {
                 // If the spot has already been revealed, we can't flag it
                 if (board.isRevealed(row - 1, col - 1))
                     System.out.println("Spot already revealed");
-                else
+                else {
                     board.flag(row - 1, col - 1);
+                    if (differential)
+                        renderer.renderChanges(System.out, board.getChanges());
+                }
+            } else if (action == 'c') {
+                // Chording only works on a revealed number with the right amount of flags around it
+                if (!board.isRevealed(row - 1, col - 1) || board.isMine(row - 1, col - 1))
+                    System.out.println("Can only chord a revealed number");
+                else if (!board.chord(row - 1, col - 1)) {
+                    hitMine = true;
+                    break;
+                } else if (differential)
+                    renderer.renderChanges(System.out, board.getChanges());
             } else {
                 // If the spot has a flag, we have to remove it first before revealing
                 if (board.hasFlag(row - 1, col - 1))
@@ -90,14 +267,20 @@ public class CommandLineUI {
                 else if (!board.reveal(row - 1, col - 1)) {
                     hitMine = true;
                     break;
-                }
+                } else if (differential)
+                    renderer.renderChanges(System.out, board.getChanges());
             }
         }
 
-        System.out.println(board);
+        // The differential board is already up to date, unless a mine was hit, when it is drawn once more below
+        if (!differential) {
+            renderer.render(System.out);
+            System.out.println();
+        }
 
         if (hitMine) {
-            System.out.println("Hit mine!");
+            if (!differential)
+                System.out.println("Hit mine!");
 
             // If we hit a mine, reveal all the mines and print the board once again
             for (int i = 0; i < board.getHeight(); i++) {
@@ -107,9 +290,22 @@ public class CommandLineUI {
                 }
             }
 
-            System.out.println(board);
+            if (differential) {
+                renderer.redraw(System.out);
+                System.out.println("Hit mine!");
+            } else {
+                renderer.render(System.out);
+                System.out.println();
+            }
         }
         else
             System.out.println("Minefield cleared!");
+
+        if (journal != null)
+            journal.close();
+
+        if (Metrics.ENABLED)
+            System.out.println(Metrics.dump());
+        System.out.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,393 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A board which many players can reveal and flag on at once from different threads. Every cell is packed into an int
+ * with the same bits as BoardStorage, and every change to a cell is a single compare-and-set, so no locks are taken.
+ * A flood fill claims each cell it reveals with a compare-and-set, so when two fills meet, each cell is revealed by
+ * exactly one of them and the fills carry on over each other's area without waiting. Each reveal keeps its own work
+ * stack, and adds the cells it revealed to the shared counters once at the end rather than once per cell.
+ *
+ * Unlike Board, hitting a mine doesn't stop the game for everyone else: it is counted and the players carry on.
+ * @author Hudson Hadley
+ */
+public class ConcurrentBoard {
+    /**
+     * The width of the board
+     */
+    private final int width;
+    /**
+     * The height of the board
+     */
+    private final int height;
+    /**
+     * How many mines are on the board
+     */
+    private final int totalMines;
+    /**
+     * The seed the mines were placed with
+     */
+    private final long seed;
+
+    /**
+     * The packed state of every cell, stored row by row with the bits of BoardStorage
+     */
+    private final AtomicIntegerArray cells;
+    /**
+     * The amount of flags on the board
+     */
+    private final AtomicInteger flagCount = new AtomicInteger();
+    /**
+     * The amount of cells which aren't mines and haven't been revealed yet
+     */
+    private final AtomicInteger safeCellsLeft;
+    /**
+     * How many mines have been revealed
+     */
+    private final AtomicInteger minesRevealed = new AtomicInteger();
+    /**
+     * How many compare-and-sets had to be retried because another thread changed the cell first
+     */
+    private final LongAdder contention = new LongAdder();
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines, placed from a random seed.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @throws IllegalArgumentException if totalMines is greater than the total amount of cells (width x height)
+     * @throws NegativeArraySizeException if the width or height is negative
+     */
+    public ConcurrentBoard(int width, int height, int totalMines)
+            throws IllegalArgumentException, NegativeArraySizeException {
+        this(width, height, totalMines, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates a board with a defined width, height, and total amount of mines. The mines are placed from the seed in
+     * the same way as Board, so a Board made with the same arguments has the same layout.
+     * @param width the width we want to assign to the board
+     * @param height the height we want to assign to the board
+     * @param totalMines the total amount of mines we want to assign to the board
+     * @param seed the seed used to place the mines
+     * @throws IllegalArgumentException if totalMines is greater than the total amount of cells (width x height)
+     * @throws NegativeArraySizeException if the width or height is negative
+     */
+    public ConcurrentBoard(int width, int height, int totalMines, long seed)
+            throws IllegalArgumentException, NegativeArraySizeException {
+        if (totalMines > (long) width * height)
+            throw new IllegalArgumentException("totalMines must be less than the allotted cells");
+
+        this.width = width;
+        this.height = height;
+        this.totalMines = totalMines;
+        this.seed = seed;
+
+        // The layout is made single-threaded, then published through the atomic array
+        BoardStorage storage = new BoardStorage(width, height);
+        MinePlacer.place(storage, totalMines, new SplittableRandom(seed));
+        BitboardNumbering.number(storage);
+
+        cells = new AtomicIntegerArray(storage.size());
+        for (int i = 0; i < storage.size(); i++)
+            cells.set(i, storage.get(i));
+
+        safeCellsLeft = new AtomicInteger(storage.size() - totalMines);
+    }
+
+    /**
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the board
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the total amount of mines on the board
+     */
+    public int getTotalMines() {
+        return totalMines;
+    }
+
+    /**
+     * @return the seed the mines were placed with
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Reveals a certain location and all surrounding blank spots. Other threads can reveal and flag at the same time;
+     * any cell they reveal first is simply skipped.
+     * @param row the row of the cell we want to reveal
+     * @param col the column of the cell we want to reveal
+     * @return false if the cell was a mine revealed by this call
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     * @throws IllegalArgumentException if the cell is flagged
+     */
+    public boolean reveal(int row, int col) throws IndexOutOfBoundsException, IllegalArgumentException {
+        int index = index(row, col);
+
+        int cell;
+        do {
+            cell = cells.get(index);
+            if ((cell & BoardStorage.FLAG) != 0)
+                throw new IllegalArgumentException("Cell is flagged");
+            else if ((cell & BoardStorage.REVEALED) != 0) // Someone else got here first
+                return true;
+        } while (!claim(index, cell));
+
+        if ((cell & BoardStorage.MINE) != 0) {
+            minesRevealed.incrementAndGet();
+            return false;
+        }
+
+        int revealed = 1;
+        if ((cell & BoardStorage.NUMBER_MASK) == 0)
+            revealed += floodFill(index);
+
+        safeCellsLeft.addAndGet(-revealed);
+        return true;
+    }
+
+    /**
+     * Reveals every cell reachable from a blank cell through blank cells, which this thread has already revealed.
+     * Cells are claimed one at a time with a compare-and-set, and only the thread which claims a blank cell goes on
+     * to visit its neighbors.
+     * @param start the flat index of the blank cell to start from
+     * @return how many cells this call revealed, not counting the start
+     */
+    private int floodFill(int start) {
+        int[] stack = new int[16];
+        int size = 0;
+        int revealed = 0;
+        stack[size++] = start;
+
+        while (size > 0) {
+            int current = stack[--size];
+            int row = current / width;
+            int col = current - row * width;
+
+            int top = Math.max(row - 1, 0);
+            int bottom = Math.min(row + 1, height - 1);
+            int left = Math.max(col - 1, 0);
+            int right = Math.min(col + 1, width - 1);
+
+            for (int i = top; i <= bottom; i++) {
+                for (int j = left; j <= right; j++) {
+                    int neighbor = i * width + j;
+
+                    // Neighbors of a blank cell can't be mines, and flagged ones are revealed as in Board
+                    int cell;
+                    do {
+                        cell = cells.get(neighbor);
+                    } while ((cell & BoardStorage.REVEALED) == 0 && !claim(neighbor, cell));
+
+                    if ((cell & BoardStorage.REVEALED) != 0)
+                        continue;
+
+                    revealed++;
+                    if ((cell & BoardStorage.NUMBER_MASK) == 0) {
+                        if (size == stack.length)
+                            stack = Arrays.copyOf(stack, size * 2);
+                        stack[size++] = neighbor;
+                    }
+                }
+            }
+        }
+
+        return revealed;
+    }
+
+    /**
+     * Tries to reveal a cell which was hidden when it was read
+     * @param index the flat index of the cell
+     * @param cell the state the cell was read in
+     * @return true if this thread revealed the cell
+     */
+    private boolean claim(int index, int cell) {
+        if (cells.compareAndSet(index, cell, cell | BoardStorage.REVEALED))
+            return true;
+
+        contention.increment();
+        return false;
+    }
+
+    /**
+     * Flips the flag of a hidden cell. If the cell was flagged, it will switch to not being flagged and vice versa.
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return false if the cell was revealed, in which case nothing changes
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public boolean flag(int row, int col) throws IndexOutOfBoundsException {
+        int index = index(row, col);
+
+        int cell;
+        while (true) {
+            cell = cells.get(index);
+            if ((cell & BoardStorage.REVEALED) != 0)
+                return false;
+            else if (cells.compareAndSet(index, cell, cell ^ BoardStorage.FLAG))
+                break;
+
+            contention.increment();
+        }
+
+        if ((cell & BoardStorage.FLAG) != 0)
+            flagCount.decrementAndGet();
+        else
+            flagCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell is a mine
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public boolean isMine(int row, int col) throws IndexOutOfBoundsException {
+        return (cells.get(index(row, col)) & BoardStorage.MINE) != 0;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell has a flag
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public boolean hasFlag(int row, int col) throws IndexOutOfBoundsException {
+        return (cells.get(index(row, col)) & BoardStorage.FLAG) != 0;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell has been revealed
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public boolean isRevealed(int row, int col) throws IndexOutOfBoundsException {
+        return (cells.get(index(row, col)) & BoardStorage.REVEALED) != 0;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the number of the cell, or -1 if it is a mine
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    public int getNumber(int row, int col) throws IndexOutOfBoundsException {
+        int cell = cells.get(index(row, col));
+        return (cell & BoardStorage.MINE) != 0 ? -1 : cell & BoardStorage.NUMBER_MASK;
+    }
+
+    /**
+     * @return the amount of flags on the board
+     */
+    public int getFlagCount() {
+        return flagCount.get();
+    }
+
+    /**
+     * @return how many mines have been revealed
+     */
+    public int getMinesRevealed() {
+        return minesRevealed.get();
+    }
+
+    /**
+     * @return how many compare-and-sets had to be retried because another thread changed the cell first
+     */
+    public long getContention() {
+        return contention.sum();
+    }
+
+    /**
+     * @return true if every cell which isn't a mine has been revealed
+     */
+    public boolean hasWon() {
+        return safeCellsLeft.get() == 0;
+    }
+
+    /**
+     * Checks that the counters agree with the cells and that every revealed blank cell has all of its neighbors
+     * revealed. Only meaningful while no other thread is changing the board.
+     * @throws IllegalStateException describing the first invariant which doesn't hold
+     */
+    public void checkInvariants() throws IllegalStateException {
+        int flags = 0;
+        int hiddenSafe = 0;
+        int mines = 0;
+        int revealedMines = 0;
+
+        for (int i = 0; i < cells.length(); i++) {
+            int cell = cells.get(i);
+            boolean revealed = (cell & BoardStorage.REVEALED) != 0;
+
+            if ((cell & BoardStorage.FLAG) != 0)
+                flags++;
+
+            if ((cell & BoardStorage.MINE) != 0) {
+                mines++;
+                if (revealed)
+                    revealedMines++;
+            } else if (!revealed) {
+                hiddenSafe++;
+            } else if ((cell & BoardStorage.NUMBER_MASK) == 0 && !neighborsRevealed(i)) {
+                throw new IllegalStateException("revealed blank cell " + i + " has a hidden neighbor");
+            }
+        }
+
+        if (mines != totalMines)
+            throw new IllegalStateException("expected " + totalMines + " mines but found " + mines);
+        else if (flags != flagCount.get())
+            throw new IllegalStateException("flag count is " + flagCount.get() + " but " + flags + " are flagged");
+        else if (hiddenSafe != safeCellsLeft.get())
+            throw new IllegalStateException("safe cells left is " + safeCellsLeft.get() + " but " + hiddenSafe
+                    + " are hidden");
+        else if (revealedMines != minesRevealed.get())
+            throw new IllegalStateException("mines revealed is " + minesRevealed.get() + " but " + revealedMines
+                    + " are revealed");
+    }
+
+    /**
+     * @param index the flat index of a cell
+     * @return true if every neighbor of the cell has been revealed
+     */
+    private boolean neighborsRevealed(int index) {
+        int row = index / width;
+        int col = index % width;
+
+        for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, height - 1); i++) {
+            for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, width - 1); j++) {
+                if ((cells.get(i * width + j) & BoardStorage.REVEALED) == 0)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return the flat index of the cell
+     * @throws IndexOutOfBoundsException if the cell is out of bounds
+     */
+    private int index(int row, int col) throws IndexOutOfBoundsException {
+        if (row < 0 || row >= height || col < 0 || col >= width)
+            throw new IndexOutOfBoundsException("invalid row and col pair");
+        return row * width + col;
+    }
+}
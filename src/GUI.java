@@ -4,6 +4,9 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
 
 public class GUI {
     /**
@@ -22,14 +25,14 @@ public class GUI {
     private static JPanel cards;
 
     /**
-     * The buttons where the game is played
+     * The canvas the game is painted on
      */
-    private static CellButton[][] buttons;
+    private static BoardCanvas canvas;
 
     /**
-     * The current flagCount on the board
+     * The timer which keeps the clock at the top of the game up to date
      */
-    private static int flagCount;
+    private static Timer clock;
 
     /**
      * If the player has hit a mine
@@ -41,49 +44,20 @@ public class GUI {
      */
     private static final Font DEFAULT_FONT = new Font("Dialog", Font.BOLD, 15);
 
-    /**
-     * The font of the numbers
-     */
-    private static final Font NUMBER_FONT = new Font("TimesNewRoman", Font.BOLD,15);
-    /**
-     * The color used by each number (note that index 0 is not used since no number is shown for a blank space)
-     */
-    private static final Color[] NUMBER_COLORS = new Color[]{
-            new Color(0, 0, 0), // 0
-            new Color(12, 183, 224), // 1
-            new Color(127, 206, 90), // 2
-            new Color(225, 101, 101), // 3
-            new Color(207, 88, 222), // 4
-            new Color(253, 148, 113), // 5
-            new Color(0, 68, 224), // 6
-            new Color(64, 180, 0), // 7
-            new Color(255, 255, 22), // 8
-    };
-
-    /**
-     * A map from difficulty level to size
-     */
-    private static final int[][] SIZES = new int[][] {{9, 9, 10}, {16, 16, 40}, {30, 16, 99}};
-
     /**
      * The length of one cell in pixels
      */
     private static final int CELL_SIZE = 30;
 
     /**
-     * Stores the start time and is updated as necessary when the game resets
-     */
-    private static long startTime;
-
-    /**
-     * The image of the flag
+     * Records the moves of the current game, or null if journaling is turned off
      */
-    private static final ImageIcon FLAG_IMAGE = new ImageIcon(System.getProperty("java.class.path") + "/../../../images/flag.png");
+    private static MoveJournal journal;
 
     /**
-     * The image of the mine
+     * Stores the start time and is updated as necessary when the game resets
      */
-    private static final ImageIcon MINE_IMAGE = new ImageIcon(System.getProperty("java.class.path") + "/../../../images/mine.png");
+    private static long startTime;
 
     /**
      * Makes the GUI and shows it
@@ -93,8 +67,20 @@ public class GUI {
         frame = new JFrame("Minesweeper");
         frame.setVisible(true);
         // Add 20 on the width and the height as a wiggle room (the 60 makes up for the heading)
-        frame.setSize(SIZES[2][0] * CELL_SIZE + 20, SIZES[2][1] * CELL_SIZE + 60 + 20);
+        frame.setSize(Board.SIZES[2][0] * CELL_SIZE + 20, Board.SIZES[2][1] * CELL_SIZE + 60 + 20);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                // The frame exits straight after this, so the journal of an unfinished game is finished here
+                try {
+                    if (journal != null)
+                        journal.close();
+                } catch (IOException ex) {
+                    System.err.println("Could not finish the journal: " + ex.getMessage());
+                }
+            }
+        });
 
         cards = new JPanel(new CardLayout());
         frame.add(cards);
@@ -209,9 +195,27 @@ public class GUI {
         if (difficulty > 2 || difficulty < 0)
             throw new IllegalArgumentException("Invalid difficulty");
 
-        flagCount = 0;
         hitMine = false;
 
+        // The clock of the previous game is no longer shown
+        if (clock != null)
+            clock.stop();
+
+        // The mines are placed around the first click, so it is always safe. Making the board costs nothing but
+        // the cells, and placing and numbering the mines of even an expert board takes microseconds.
+        int[] size = Board.SIZES[difficulty];
+        gameBoard = new Board(size[0], size[1], size[2], true);
+
+        // The journal of an unfinished game is closed, and the new game gets its own
+        try {
+            if (journal != null)
+                journal.close();
+            journal = MoveJournal.startIfEnabled(gameBoard);
+        } catch (IOException e) {
+            System.err.println("Could not start the journal: " + e.getMessage());
+            journal = null;
+        }
+
         // Make a new panel
         JPanel gamePanel = new JPanel();
         gamePanel.setLayout(new BorderLayout());
@@ -262,7 +266,7 @@ public class GUI {
         topOfBoard.add(Box.createHorizontalStrut(strutWidth));
 
         // Add the score
-        JLabel scoreLabel = new JLabel("" + (SIZES[difficulty][2] - flagCount), JLabel.LEFT);
+        JLabel scoreLabel = new JLabel("" + (Board.SIZES[difficulty][2] - gameBoard.getFlagCount()), JLabel.LEFT);
         scoreLabel.setMaximumSize(new Dimension(labelWidth, 60));
         scoreLabel.setFont(DEFAULT_FONT);
         scoreLabel.setForeground(Color.BLACK);
@@ -298,6 +302,19 @@ public class GUI {
         });
         topOfBoard.add(retryButton);
 
+        // Add the hint button
+        JButton hintButton = new JButton("Hint");
+        hintButton.setMaximumSize(new Dimension(buttonWidth, 60));
+        hintButton.setFont(DEFAULT_FONT);
+        hintButton.setForeground(Color.BLACK);
+        hintButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showHint();
+            }
+        });
+        topOfBoard.add(hintButton);
+
         // Add the timer
 
         startTime = System.currentTimeMillis(); // Keep track of when the timer is initialized
@@ -307,10 +324,11 @@ public class GUI {
         timeLabel.setForeground(Color.BLACK);
         topOfBoard.add(timeLabel);
 
-        // We have to initialize it first, so we can use it in the ActionListener
-        Timer timer = new Timer(200, null);
+        // We have to initialize it first, so we can use it in the ActionListener. The timer only goes off when the
+        // displayed second changes, and schedules itself again for the start of the next second.
+        Timer timer = new Timer(1000, null);
+        timer.setRepeats(false);
         timer.addActionListener(new ActionListener() {
-            // Every second the time will update the JLabels on the top of the board
             @Override
             public void actionPerformed(ActionEvent e) {
                 long elapsed = System.currentTimeMillis() - startTime;
@@ -318,20 +336,35 @@ public class GUI {
                 // Update the time
                 timeLabel.setText("" + elapsed / 1000);
 
-                // Update flag count
-                scoreLabel.setText("" + (SIZES[difficulty][2] - flagCount) );
-
-                // If the game is over, stop the timer
-                if (gameBoard.hasWon()) {
-                    timeLabel.setText("Minefield cleared :)   " + elapsed / 1000);
-                    timer.stop();
-                } else if (hitMine) {
-                    timeLabel.setText("Mine hit :(   " + elapsed / 1000);
-                    timer.stop();
-                }
+                timer.setInitialDelay((int) (1000 - elapsed % 1000));
+                timer.start();
             }
         });
         timer.start();
+        clock = timer;
+
+        // The flag count and the end of the game are pushed from the board as they happen
+        gameBoard.addBoardListener(new BoardListener() {
+            @Override
+            public void cellsChanged(Board board, ChangeSet changes) {}
+
+            @Override
+            public void flagCountChanged(Board board, int flagCount) {
+                scoreLabel.setText("" + (Board.SIZES[difficulty][2] - flagCount));
+            }
+
+            @Override
+            public void gameWon(Board board) {
+                timer.stop();
+                timeLabel.setText("Minefield cleared :)   " + (System.currentTimeMillis() - startTime) / 1000);
+            }
+
+            @Override
+            public void mineHit(Board board, int row, int col) {
+                timer.stop();
+                timeLabel.setText("Mine hit :(   " + (System.currentTimeMillis() - startTime) / 1000);
+            }
+        });
 
         topOfBoard.add(Box.createHorizontalStrut(50));
 
@@ -341,121 +374,135 @@ public class GUI {
     /**
      * Creates the bottom panel used for the game
      * @param difficulty the difficulty of the game
-     * @return the panel where the game is played
+     * @return the scrollable component where the game is played
      * @throws IllegalArgumentException if the difficulty is invalid (not 0, 1, or 2)
      */
-    private static JPanel makeGamePanel(int difficulty) {
+    private static JComponent makeGamePanel(int difficulty) {
         if (difficulty < 0 || difficulty > 2)
             throw new IllegalArgumentException("Invalid difficulty");
 
-        // Create the game board to be used
-        gameBoard = new Board(SIZES[difficulty][0], SIZES[difficulty][1], SIZES[difficulty][2]);
+        // The whole board is painted by a single canvas, which never asks for more room than an expert board
+        canvas = new BoardCanvas(gameBoard, CELL_SIZE,
+                new Dimension(Board.SIZES[2][0] * CELL_SIZE, Board.SIZES[2][1] * CELL_SIZE));
 
-        // For the game board we will create a panel
-        JPanel gamePanel = new JPanel();
-        gamePanel.setLayout(new GridLayout(gameBoard.getHeight(), gameBoard.getWidth()));
+        // Repaint only the cells each move changes, and if we hit a mine, highlight the incorrect things
+        gameBoard.addBoardListener(new BoardListener() {
+            @Override
+            public void cellsChanged(Board board, ChangeSet changes) {
+                long start = Metrics.ENABLED ? System.nanoTime() : 0;
+                canvas.clearHint();
+                canvas.repaintCells(changes);
+                if (Metrics.ENABLED)
+                    Metrics.recordGuiUpdate(start, changes.size());
+            }
 
-        // Initialize all the buttons
-        buttons = new CellButton[gameBoard.getHeight()][gameBoard.getWidth()];
+            @Override
+            public void mineHit(Board board, int row, int col) {
+                hitMine = true;
+                canvas.showEndGame(row, col);
+            }
+        });
 
-        for (int i = 0; i < gameBoard.getHeight(); i++) {
-            for (int j = 0; j < gameBoard.getWidth(); j++) {
-                buttons[i][j] = new CellButton(i, j);
-                buttons[i][j].setPreferredSize(new Dimension(CELL_SIZE, CELL_SIZE));
-                buttons[i][j].setMargin(new Insets(0, 0, 0, 0));
-                buttons[i][j].setBackground(Color.DARK_GRAY);
-
-                buttons[i][j].addMouseListener(new MouseListener() {
-                    @Override
-                    public void mouseClicked(MouseEvent e) {}
-                    @Override
-                    public void mousePressed(MouseEvent e) {}
-                    @Override
-                    public void mouseReleased(MouseEvent e) { // Once the mouse is released, an action will trigger
-                        // If the game is over, do nothing
-                        if (hitMine || gameBoard.hasWon())
-                            return;
-
-                        CellButton buttonClicked = (CellButton) e.getSource();
-                        int row = buttonClicked.getRow();
-                        int col = buttonClicked.getCol();
-
-                        // If the left mouse button is clicked
-                        if (e.getButton() == MouseEvent.BUTTON1) {
-
-                            // If it's not flagged and isn't revealed already
-                            if (!gameBoard.hasFlag(row, col) && !gameBoard.isRevealed(row, col)) {
-                                gameBoard.reveal(row, col);
-                            }
-
-                            // If it is a mine (NOT ELSE IF)
-                            if (gameBoard.isMine(row, col) && !gameBoard.hasFlag(row, col))
-                                hitMine = true;
-
-                        } else if (e.getButton() == MouseEvent.BUTTON3) { // If the right mouse button is clicked
-
-                            // If it isn't revealed already
-                            if (!gameBoard.isRevealed(row, col))
-                                gameBoard.flag(row, col);
-                        }
-
-                        // After we click we need to update the board on the screen
-
-                        // If we hit a mine, we want to highlight the incorrect things
-                        if (hitMine) {
-                            revealEndGame(row, col);
-                        } else { // Otherwise we just want to update the board normally
-                            updateBoard();
-                        }
-
-                        System.out.println(gameBoard);
+        canvas.addMouseListener(new MouseListener() {
+            /**
+             * The mouse buttons which count as held down while chording
+             */
+            private final int buttons = MouseEvent.BUTTON1_DOWN_MASK | MouseEvent.BUTTON2_DOWN_MASK
+                    | MouseEvent.BUTTON3_DOWN_MASK;
+
+            /**
+             * If the left and right buttons have been held down together, so the next release chords
+             */
+            private boolean chordPending = false;
+            /**
+             * If a chord was just made and the rest of the buttons still have to be released
+             */
+            private boolean chordMade = false;
+
+            @Override
+            public void mouseClicked(MouseEvent e) {}
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int both = MouseEvent.BUTTON1_DOWN_MASK | MouseEvent.BUTTON3_DOWN_MASK;
+                if ((e.getModifiersEx() & both) == both)
+                    chordPending = true;
+            }
+            @Override
+            public void mouseReleased(MouseEvent e) { // Once the mouse is released, an action will trigger
+                boolean buttonsLeft = (e.getModifiersEx() & buttons) != 0;
+
+                // When both buttons are held, the first one released chords and the other one does nothing
+                if (chordMade) {
+                    chordMade = buttonsLeft;
+                    return;
+                }
+
+                boolean chording = chordPending || e.getButton() == MouseEvent.BUTTON2;
+                chordMade = chordPending && buttonsLeft;
+                chordPending = false;
+
+                // If the game is over, do nothing
+                if (hitMine || gameBoard.hasWon())
+                    return;
+
+                int row = canvas.rowAt(e.getY());
+                int col = canvas.colAt(e.getX());
+
+                // If the mouse was released off the board, do nothing
+                if (row == -1 || col == -1)
+                    return;
+
+                // If the middle button or both buttons are clicked, reveal around a satisfied number
+                if (chording) {
+                    gameBoard.chord(row, col);
+                } else if (e.getButton() == MouseEvent.BUTTON1) { // If the left mouse button is clicked
+
+                    // If it's not flagged and isn't revealed already
+                    if (!gameBoard.hasFlag(row, col) && !gameBoard.isRevealed(row, col)) {
+                        gameBoard.reveal(row, col);
                     }
-                    @Override
-                    public void mouseEntered(MouseEvent e) {}
-                    @Override
-                    public void mouseExited(MouseEvent e) {}
-                });
 
-                gamePanel.add(buttons[i][j]);
+                } else if (e.getButton() == MouseEvent.BUTTON3) { // If the right mouse button is clicked
+
+                    // If it isn't revealed already
+                    if (!gameBoard.isRevealed(row, col))
+                        gameBoard.flag(row, col);
+                }
             }
-        }
+            @Override
+            public void mouseEntered(MouseEvent e) {}
+            @Override
+            public void mouseExited(MouseEvent e) {}
+        });
 
-        return gamePanel;
+        JScrollPane scrollPane = new JScrollPane(canvas);
+        scrollPane.setBorder(null);
+
+        return scrollPane;
     }
 
     /**
-     * Reveals all the mines, highlighting the mine that was hit as well as incorrect
-     * @param row the row of the cell that was hit
-     * @param col the column of the cell that was hit
-     * @throws IndexOutOfBoundsException if row or col is out of bounds
+     * Highlights the hidden, unflagged cell which is least likely to be a mine
      */
-    private static void revealEndGame(int row, int col) throws IndexOutOfBoundsException {
-        if (row < 0 || row >= gameBoard.getHeight() || col < 0 || col >= gameBoard.getWidth())
-            throw new IndexOutOfBoundsException("Cell invalid");
+    private static void showHint() {
+        // If the game is over, do nothing
+        if (hitMine || gameBoard.hasWon())
+            return;
+
+        double[] probabilities = gameBoard.getMineProbabilities();
+        int best = -1;
 
-        // Go through all the cells revealing the mines and highlighting the incorrect flags
         for (int i = 0; i < gameBoard.getHeight(); i++) {
             for (int j = 0; j < gameBoard.getWidth(); j++) {
-                // There are 3 things we are looking for
-                // 1. The mine that we hit -- red it and reveal it
-                // 2. A mine without a flag -- reveal it
-                // 3. An incorrect flag -- red it
-
-                if (gameBoard.isMine(i, j)) {
-                    // If it is the one we hit
-                    if (i == row && j == col) {
-                        buttons[i][j].setIcon(MINE_IMAGE);
-                        buttons[i][j].setBackground(new Color(255, 100, 100));
-                    } else if (!gameBoard.hasFlag(i, j)) {
-                        buttons[i][j].setIcon(MINE_IMAGE);
-                        buttons[i][j].setBackground(Color.WHITE);
-                    }
-                    // If it isn't a mine and has a flag
-                } else if (gameBoard.hasFlag(i, j)) {
-                    buttons[i][j].setBackground(new Color(255, 100, 100));
-                }
+                int index = i * gameBoard.getWidth() + j;
+                if (!gameBoard.isRevealed(i, j) && !gameBoard.hasFlag(i, j)
+                        && (best == -1 || probabilities[index] < probabilities[best]))
+                    best = index;
             }
         }
+
+        if (best != -1)
+            canvas.showHint(best / gameBoard.getWidth(), best % gameBoard.getWidth());
     }
 
     /**
@@ -471,52 +518,6 @@ public class GUI {
         return bottomPanel;
     }
 
-    /**
-     * Updates the board on the screen according to the Board member in this class
-     * @throws IllegalStateException if the gameBoard hasn't been set up yet
-     */
-    private static void updateBoard() {
-        if (gameBoard == null)
-            throw new IllegalStateException("If the board hasn't been set up yet, we can't update");
-
-        flagCount = 0;
-
-        for (int i = 0; i < gameBoard.getHeight(); i++) {
-            for (int j = 0; j < gameBoard.getWidth(); j++) {
-                if (gameBoard.isRevealed(i, j)) {
-                    // If it's blank make it white
-                    if (gameBoard.isBlank(i, j)) {
-                        buttons[i][j].setText("");
-                        buttons[i][j].setIcon(null); // Clear the image
-                        buttons[i][j].setBackground(Color.WHITE);
-
-                        // If it's a mine, put the image on
-                    } else if (gameBoard.isMine(i, j)) {
-                        buttons[i][j].setIcon(MINE_IMAGE);
-
-                        buttons[i][j].setBackground(Color.WHITE);
-
-                        // If it has a number, set it
-                    } else {
-                        buttons[i][j].setText("" + gameBoard.getNumber(i, j));
-                        buttons[i][j].setFont(NUMBER_FONT);
-                        buttons[i][j].setForeground(NUMBER_COLORS[gameBoard.getNumber(i, j)]);
-                        buttons[i][j].setBackground(Color.WHITE);
-                    }
-
-                    // If it has a flag, put the image on
-                } else if (gameBoard.hasFlag(i, j)) {
-                    buttons[i][j].setIcon(FLAG_IMAGE);
-
-                    flagCount++;
-                } else {
-                    buttons[i][j].setText("");
-                    buttons[i][j].setIcon(null);
-                }
-            }
-        }
-    }
-    
     public static void main(String[] args) {
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -0,0 +1,512 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many independent games over a local TCP socket. Each game is a session holding its own Board, looked up by
+ * an id, and any connection can play any session. Every connection gets its own thread, which is a virtual thread
+ * when the JVM has them, so thousands of connections cost little more than their sockets. Sessions which haven't
+ * been used for a while are evicted.
+ *
+ * The protocol is one line per request and one line per response. Rows and columns start at 0.
+ *      NEW d               starts a game at difficulty d (1 - 3)      OK id width height mines
+ *      NEW w h m [seed]    starts a game of a custom size            OK id width height mines
+ *                          (at most as many cells as the server allows)
+ *      R id row col        reveals a cell                            OK status n index=number ...
+ *      C id row col        chords a number                           OK status n index=number ...
+ *      F id row col        flags or unflags a cell                   OK flags
+ *      U id                undoes the last move                      OK status n index=number ...
+ *      S id                shows the board                           OK status cells
+ *      Q id                ends a game                               OK
+ *      STATS               shows the server statistics               OK key=value ...
+ * The status is PLAY, WON, or LOST. Moves list the cells they changed by flat index, where a number of -1 is a mine,
+ * F is a flagged cell, and H is a hidden cell. The board is shown one character per cell, row by row: # for hidden,
+ * F for flagged, * for a mine, and the number otherwise. Anything that goes wrong is answered with ERR and a message.
+ * @author Hudson Hadley
+ */
+public class GameServer {
+    /**
+     * How often idle sessions are looked for, as a fraction of the idle timeout
+     */
+    private static final int EVICTION_CHECKS_PER_TIMEOUT = 4;
+    /**
+     * The most cells a custom board can have unless the server is told otherwise
+     */
+    public static final int DEFAULT_MAX_CELLS = 1 << 20;
+
+    /**
+     * A game being played on the server
+     */
+    private static class Session {
+        /**
+         * The board of the game
+         */
+        private final Board board;
+        /**
+         * When the session was last used in nanoseconds
+         */
+        private volatile long lastUsed = System.nanoTime();
+
+        Session(Board board) {
+            this.board = board;
+        }
+    }
+
+    /**
+     * The socket connections are accepted on
+     */
+    private final ServerSocket serverSocket;
+    /**
+     * How long a session can go unused before it is evicted in nanoseconds
+     */
+    private final long idleTimeoutNanos;
+    /**
+     * The most cells a custom board can have, so one client can't use up the memory every session shares
+     */
+    private final int maxCells;
+    /**
+     * Runs each connection on its own thread
+     */
+    private final ExecutorService connections;
+    /**
+     * Evicts idle sessions
+     */
+    private final ScheduledExecutorService evictor;
+
+    /**
+     * The sessions by id
+     */
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    /**
+     * The id of the next session
+     */
+    private final AtomicLong nextId = new AtomicLong(1);
+    /**
+     * How many sessions have been evicted for being idle
+     */
+    private final AtomicLong evicted = new AtomicLong();
+    /**
+     * The connections which are open, so stop can close them (closing a socket is the only way to wake a thread
+     * blocked reading it)
+     */
+    private final Set<Socket> openConnections = ConcurrentHashMap.newKeySet();
+    /**
+     * How long each request took to handle
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    /**
+     * How much of the heap was used before any sessions were made
+     */
+    private final long baselineHeap;
+
+    /**
+     * Creates a server listening on the loopback address
+     * @param port the port to listen on, or 0 for any free port
+     * @param idleTimeoutMillis how long a session can go unused before it is evicted
+     * @throws IOException if the socket can't be opened
+     */
+    public GameServer(int port, long idleTimeoutMillis) throws IOException {
+        this(port, idleTimeoutMillis, DEFAULT_MAX_CELLS);
+    }
+
+    /**
+     * Creates a server listening on the loopback address
+     * @param port the port to listen on, or 0 for any free port
+     * @param idleTimeoutMillis how long a session can go unused before it is evicted
+     * @param maxCells the most cells a custom board can have
+     * @throws IOException if the socket can't be opened
+     * @throws IllegalArgumentException if maxCells isn't positive
+     */
+    public GameServer(int port, long idleTimeoutMillis, int maxCells) throws IOException, IllegalArgumentException {
+        if (maxCells <= 0)
+            throw new IllegalArgumentException("maxCells must be positive");
+
+        this.maxCells = maxCells;
+        this.serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.connections = newThreadPerTaskExecutor();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "session-evictor");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.baselineHeap = usedHeap();
+    }
+
+    /**
+     * Makes an executor which starts a new virtual thread for every task, or a new platform thread if this JVM
+     * doesn't have virtual threads
+     * @return the executor
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting connections and evicting idle sessions in the background
+     */
+    public void start() {
+        long period = Math.max(idleTimeoutNanos / EVICTION_CHECKS_PER_TIMEOUT, TimeUnit.MILLISECONDS.toNanos(10));
+        evictor.scheduleAtFixedRate(this::evictIdleSessions, period, period, TimeUnit.NANOSECONDS);
+
+        connections.execute(() -> {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    openConnections.add(socket);
+
+                    // A connection accepted while stopping would be missed by stop, so it is closed here instead
+                    if (serverSocket.isClosed())
+                        socket.close();
+                    else
+                        connections.execute(() -> serve(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed())
+                        System.err.println("Could not accept a connection: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones, and forgets every session
+     * @throws IOException if the socket can't be closed
+     */
+    public void stop() throws IOException {
+        serverSocket.close();
+        evictor.shutdownNow();
+        connections.shutdownNow();
+        for (Socket socket : openConnections)
+            socket.close();
+        sessions.clear();
+    }
+
+    /**
+     * Answers the requests of a connection until it is closed
+     * @param socket the connection
+     */
+    private void serve(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(),
+                     StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(),
+                     StandardCharsets.US_ASCII))) {
+            connection.setTcpNoDelay(true);
+            StringBuilder response = new StringBuilder();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                long start = System.nanoTime();
+
+                response.setLength(0);
+                handle(line, response);
+                response.append('\n');
+                out.append(response);
+
+                // Requests which were sent together are answered together
+                if (!in.ready())
+                    out.flush();
+
+                latencies.record(System.nanoTime() - start);
+            }
+        } catch (SocketException ignore) {
+            // The client went away
+        } catch (IOException e) {
+            System.err.println("Connection failed: " + e.getMessage());
+        } finally {
+            openConnections.remove(socket);
+        }
+    }
+
+    /**
+     * Handles a single request
+     * @param line the request
+     * @param response where the response is written, without the line break
+     */
+    void handle(String line, StringBuilder response) {
+        String[] words = line.trim().split("\\s+");
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW":
+                    newGame(words, response);
+                    break;
+                case "R":
+                case "C": {
+                    Session session = session(words, 4);
+                    synchronized (session) {
+                        Board board = session.board;
+                        int row = Integer.parseInt(words[2]);
+                        int col = Integer.parseInt(words[3]);
+                        if (words[0].equalsIgnoreCase("R"))
+                            board.reveal(row, col);
+                        else
+                            board.chord(row, col);
+                        appendChanges(board, response);
+                    }
+                    break;
+                }
+                case "F": {
+                    Session session = session(words, 4);
+                    synchronized (session) {
+                        int row = Integer.parseInt(words[2]);
+                        int col = Integer.parseInt(words[3]);
+                        if (session.board.isRevealed(row, col))
+                            throw new IllegalArgumentException("cell already revealed");
+                        session.board.flag(row, col);
+                        response.append("OK ").append(session.board.getFlagCount());
+                    }
+                    break;
+                }
+                case "U": {
+                    Session session = session(words, 2);
+                    synchronized (session) {
+                        if (!session.board.undo())
+                            throw new IllegalStateException("nothing to undo");
+                        appendChanges(session.board, response);
+                    }
+                    break;
+                }
+                case "S": {
+                    Session session = session(words, 2);
+                    synchronized (session) {
+                        appendBoard(session.board, response);
+                    }
+                    break;
+                }
+                case "Q":
+                    session(words, 2);
+                    sessions.remove(Long.parseLong(words[1]));
+                    response.append("OK");
+                    break;
+                case "STATS":
+                    response.append("OK ").append(this);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown request " + words[0]);
+            }
+        } catch (RuntimeException e) {
+            response.setLength(0);
+            response.append("ERR ").append(e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new game
+     * @param words the words of the request
+     * @param response where the response is written
+     * @throws IllegalArgumentException if the request is malformed
+     */
+    private void newGame(String[] words, StringBuilder response) throws IllegalArgumentException {
+        Board board;
+        if (words.length == 2) {
+            int difficulty = Integer.parseInt(words[1]);
+            if (difficulty < 1 || difficulty > Board.SIZES.length)
+                throw new IllegalArgumentException("difficulty must be 1 - " + Board.SIZES.length);
+
+            int[] size = Board.SIZES[difficulty - 1];
+            board = new Board(size[0], size[1], size[2], true);
+        } else if (words.length == 4 || words.length == 5) {
+            int width = Integer.parseInt(words[1]);
+            int height = Integer.parseInt(words[2]);
+            int mines = Integer.parseInt(words[3]);
+            if (width <= 0 || height <= 0 || (long) width * height > maxCells)
+                throw new IllegalArgumentException("boards must have between 1 and " + maxCells + " cells");
+
+            // The first reveal needs at least one cell free of mines
+            if (mines < 0 || mines > width * height - 1)
+                throw new IllegalArgumentException("mines must be between 0 and " + (width * height - 1));
+
+            board = words.length == 5 ? new Board(width, height, mines, Long.parseLong(words[4]), true)
+                    : new Board(width, height, mines, true);
+        } else {
+            throw new IllegalArgumentException("usage: NEW difficulty or NEW width height mines [seed]");
+        }
+
+        long id = nextId.getAndIncrement();
+        sessions.put(id, new Session(board));
+        response.append("OK ").append(id).append(' ').append(board.getWidth()).append(' ')
+                .append(board.getHeight()).append(' ').append(board.getTotalMines());
+    }
+
+    /**
+     * Looks up the session of a request, marking it as used
+     * @param words the words of the request, where the second is the id
+     * @param length how many words the request should have
+     * @return the session
+     * @throws IllegalArgumentException if the request has the wrong amount of words or the session doesn't exist
+     */
+    private Session session(String[] words, int length) throws IllegalArgumentException {
+        if (words.length != length)
+            throw new IllegalArgumentException("expected " + (length - 1) + " arguments");
+
+        Session session = sessions.get(Long.parseLong(words[1]));
+        if (session == null)
+            throw new IllegalArgumentException("no session " + words[1]);
+
+        session.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    /**
+     * Writes the status of a board and the cells changed by its most recent move
+     * @param board the board
+     * @param response where the response is written
+     */
+    private static void appendChanges(Board board, StringBuilder response) {
+        ChangeSet changes = board.getChanges();
+        response.append("OK ").append(status(board)).append(' ').append(changes.size());
+
+        for (int i = 0; i < changes.size(); i++) {
+            int row = changes.getRow(i);
+            int col = changes.getCol(i);
+            response.append(' ').append(changes.get(i)).append('=');
+
+            if (!board.isRevealed(row, col))
+                response.append(board.hasFlag(row, col) ? 'F' : 'H');
+            else if (board.isMine(row, col))
+                response.append(-1);
+            else
+                response.append(board.getNumber(row, col));
+        }
+    }
+
+    /**
+     * Writes the status of a board and every one of its cells
+     * @param board the board
+     * @param response where the response is written
+     */
+    private static void appendBoard(Board board, StringBuilder response) {
+        response.append("OK ").append(status(board)).append(' ');
+
+        for (int i = 0; i < board.getHeight(); i++) {
+            for (int j = 0; j < board.getWidth(); j++) {
+                if (!board.isRevealed(i, j))
+                    response.append(board.hasFlag(i, j) ? 'F' : '#');
+                else if (board.isMine(i, j))
+                    response.append('*');
+                else
+                    response.append((char) ('0' + board.getNumber(i, j)));
+            }
+        }
+    }
+
+    /**
+     * @param board a board
+     * @return LOST if a mine was hit, WON if the board was cleared, and PLAY otherwise
+     */
+    private static String status(Board board) {
+        if (board.hasHitMine())
+            return "LOST";
+        return board.hasWon() ? "WON" : "PLAY";
+    }
+
+    /**
+     * Evicts every session which hasn't been used within the idle timeout
+     */
+    private void evictIdleSessions() {
+        long now = System.nanoTime();
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().lastUsed > idleTimeoutNanos) {
+                iterator.remove();
+                evicted.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return how many bytes of the heap are in use
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * @return how many sessions are open
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return how many sessions have been evicted for being idle
+     */
+    public long getEvicted() {
+        return evicted.get();
+    }
+
+    /**
+     * @return how long each request took to handle
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the sessions, connections, heap used per session (a rough estimate, since it includes garbage), and
+     * request latencies
+     */
+    @Override
+    public String toString() {
+        int count = sessions.size();
+        long heapPerSession = count == 0 ? 0 : Math.max(usedHeap() - baselineHeap, 0) / count;
+        return String.format("sessions=%d evicted=%d connections=%d heap/session=%dB %s", count, evicted.get(),
+                openConnections.size(), heapPerSession, latencies);
+    }
+
+    /**
+     * Runs a server until it is killed.
+     * Arguments (all optional): port, idle timeout in seconds, most cells a custom board can have
+     * @param args the command line arguments
+     * @throws IOException if the socket can't be opened
+     * @throws InterruptedException if interrupted while reporting
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        long idleSeconds = args.length > 1 ? Long.parseLong(args[1]) : 300;
+
+        int maxCells = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_CELLS;
+
+        GameServer server = new GameServer(port, TimeUnit.SECONDS.toMillis(idleSeconds), maxCells);
+        server.start();
+        System.out.println("Listening on localhost:" + server.getPort());
+
+        while (true) {
+            Thread.sleep(10000);
+            System.out.println(server);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Puts load on a game server. Each client opens its own connection and plays games back to back, revealing random
+ * hidden cells until it wins or hits a mine, and the round trip of every request is timed. With no port given, a
+ * server is started in this JVM on a free port, so the whole thing can be run on its own.
+ * @author Hudson Hadley
+ */
+public class GameServerLoad {
+    /**
+     * How many requests the clients have made
+     */
+    private final AtomicLong requests = new AtomicLong();
+    /**
+     * How many games the clients have finished
+     */
+    private final AtomicLong games = new AtomicLong();
+    /**
+     * How long each request took to be answered
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * Plays games on one connection
+     * @param port the port of the server on the loopback address
+     * @param difficulty the difficulty of every game (1 - 3)
+     * @param gameCount how many games to play
+     * @param seed seeds the cells the client picks
+     * @throws IOException if the connection fails or the server answers with an error
+     */
+    private void play(int port, int difficulty, int gameCount, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.US_ASCII));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.US_ASCII))) {
+            socket.setTcpNoDelay(true);
+
+            for (int game = 0; game < gameCount; game++) {
+                String[] created = request(in, out, "NEW " + difficulty).split(" ");
+                String id = created[1];
+                int width = Integer.parseInt(created[2]);
+                int height = Integer.parseInt(created[3]);
+
+                // Keep the hidden cells packed at the front so a random one can be picked in constant time
+                int[] hidden = new int[width * height];
+                int[] position = new int[width * height];
+                for (int i = 0; i < hidden.length; i++) {
+                    hidden[i] = i;
+                    position[i] = i;
+                }
+                int hiddenCount = hidden.length;
+
+                String status = "PLAY";
+                while (status.equals("PLAY")) {
+                    int cell = hidden[random.nextInt(hiddenCount)];
+                    String[] words = request(in, out, "R " + id + " " + cell / width + " " + cell % width).split(" ");
+                    status = words[1];
+
+                    // Every revealed cell stops being a choice
+                    for (int i = 3; i < words.length; i++) {
+                        int index = Integer.parseInt(words[i].substring(0, words[i].indexOf('=')));
+                        int at = position[index];
+                        int last = hidden[--hiddenCount];
+                        hidden[at] = last;
+                        position[last] = at;
+                        hidden[hiddenCount] = index;
+                        position[index] = hiddenCount;
+                    }
+                }
+
+                request(in, out, "Q " + id);
+                games.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Sends a request and waits for its response
+     * @param in the responses from the server
+     * @param out the requests to the server
+     * @param line the request
+     * @return the response
+     * @throws IOException if the connection fails or the server answers with an error
+     */
+    private String request(BufferedReader in, Writer out, String line) throws IOException {
+        long start = System.nanoTime();
+        out.write(line);
+        out.write('\n');
+        out.flush();
+        String response = in.readLine();
+        latencies.record(System.nanoTime() - start);
+        requests.incrementAndGet();
+
+        if (response == null)
+            throw new IOException("server closed the connection");
+        if (!response.startsWith("OK"))
+            throw new IOException("'" + line + "' was answered with '" + response + "'");
+        return response;
+    }
+
+    /**
+     * Runs the clients and reports how the server held up.
+     * Arguments (all optional): clients, games per client, difficulty, port
+     * @param args the command line arguments
+     * @throws Exception if a client fails
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int gamesPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int difficulty = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        GameServer server = null;
+        int port;
+        if (args.length > 3) {
+            port = Integer.parseInt(args[3]);
+        } else {
+            server = new GameServer(0, TimeUnit.MINUTES.toMillis(1));
+            server.start();
+            port = server.getPort();
+        }
+
+        GameServerLoad load = new GameServerLoad();
+        ExecutorService executor = GameServer.newThreadPerTaskExecutor();
+        Future<?>[] running = new Future<?>[clients];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            long seed = i;
+            running[i] = executor.submit(() -> {
+                load.play(port, difficulty, gamesPerClient, seed);
+                return null;
+            });
+        }
+        for (Future<?> future : running)
+            future.get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+
+        System.out.printf("%d clients played %d games with %d requests in %.2f s (%.0f requests/s)%n", clients,
+                load.games.get(), load.requests.get(), seconds, load.requests.get() / seconds);
+        System.out.println("Round trip: " + load.latencies);
+
+        if (server != null) {
+            System.out.println("Server: " + server);
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds which can be recorded into from many threads at once. Every power of two is
+ * split into eight buckets, so any percentile is reported within an eighth of its true value, and recording is a
+ * couple of atomic increments with no allocation.
+ * @author Hudson Hadley
+ */
+public class LatencyHistogram {
+    /**
+     * How many bits of each value below its highest bit pick the bucket
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    /**
+     * How many buckets each power of two is split into
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * Enough buckets to hold any non-negative long
+     */
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * How many values fell into each bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * How many values have been recorded
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * The sum of every value recorded
+     */
+    private final LongAdder total = new LongAdder();
+    /**
+     * The largest value recorded
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration
+     * @param nanos the duration in nanoseconds (negative durations are counted as 0)
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        total.add(nanos);
+
+        long currentMax;
+        while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) {
+            // Someone else raised the max first, so try again against their value
+        }
+    }
+
+    /**
+     * @return how many durations have been recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return the mean of the recorded durations in nanoseconds, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * @return the longest recorded duration in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percent which percentile we want (0 - 100)
+     * @return an upper bound on the percentile in nanoseconds, or 0 if nothing has been recorded
+     * @throws IllegalArgumentException if percent is not between 0 and 100
+     */
+    public long getPercentile(double percent) throws IllegalArgumentException {
+        if (percent < 0 || percent > 100)
+            throw new IllegalArgumentException("percent must be between 0 and 100");
+
+        long n = count.sum();
+        if (n == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(n * percent / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every recorded duration
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    /**
+     * @param nanos a non-negative duration
+     * @return the bucket the duration falls into
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket a bucket of the histogram
+     * @return the largest duration which falls into the bucket
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * @return the count, mean, 50th, 99th percentile and max, in milliseconds
+     */
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms", getCount(), getMean() / 1e6,
+                getPercentile(50) / 1e6, getPercentile(99) / 1e6, getMax() / 1e6);
+    }
+}
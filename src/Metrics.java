@@ -0,0 +1,343 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures where the time goes in the hot paths: placing the mines, numbering the cells, revealing, and updating and
+ * painting the GUI, as well as how many games are started and finished. Every measurement goes into a registry in
+ * this process which can be dumped at any time, and is also committed as a Flight Recorder event, so a recording
+ * (java -XX:StartFlightRecording ...) shows them next to the garbage collector and the JIT.
+ *
+ * Metrics are off unless the JVM is started with -Dminesweeper.metrics=true. Since ENABLED is a constant, the JIT
+ * drops every guarded block when they are off, so callers pay nothing but the check in the interpreter:
+ *      long start = Metrics.ENABLED ? System.nanoTime() : 0;
+ *      ...
+ *      if (Metrics.ENABLED)
+ *          Metrics.recordFillMines(start, cells);
+ * @author Hudson Hadley
+ */
+public final class Metrics {
+    /**
+     * The system property which turns metrics on
+     */
+    public static final String PROPERTY = "minesweeper.metrics";
+    /**
+     * If metrics are being recorded (fixed for the life of the JVM)
+     */
+    public static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+
+    /**
+     * How long placing the mines took
+     */
+    private static final LatencyHistogram FILL_MINES = new LatencyHistogram();
+    /**
+     * How long numbering the cells took
+     */
+    private static final LatencyHistogram UPDATE_CELLS = new LatencyHistogram();
+    /**
+     * How long each reveal or chord took, flood fill included
+     */
+    private static final LatencyHistogram REVEAL = new LatencyHistogram();
+    /**
+     * How many cells each reveal or chord opened (recorded as if they were nanoseconds)
+     */
+    private static final LatencyHistogram REVEAL_CELLS = new LatencyHistogram();
+    /**
+     * How long the GUI took to react to a move
+     */
+    private static final LatencyHistogram GUI_UPDATE = new LatencyHistogram();
+    /**
+     * How long each paint of the board took
+     */
+    private static final LatencyHistogram PAINT = new LatencyHistogram();
+    /**
+     * How many games have had their first cell revealed
+     */
+    private static final LongAdder GAMES_STARTED = new LongAdder();
+    /**
+     * How many games have been won
+     */
+    private static final LongAdder GAMES_WON = new LongAdder();
+    /**
+     * How many games have been lost
+     */
+    private static final LongAdder GAMES_LOST = new LongAdder();
+
+    /**
+     * Placing the mines of a board
+     */
+    @Name("minesweeper.FillMines")
+    @Label("Fill Mines")
+    @Category("Minesweeper")
+    static class FillMinesEvent extends Event {
+        /**
+         * How long it took
+         */
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        /**
+         * How many cells the board has
+         */
+        @Label("Cells")
+        int cells;
+    }
+
+    /**
+     * Numbering the cells of a board
+     */
+    @Name("minesweeper.UpdateCells")
+    @Label("Update Cells")
+    @Category("Minesweeper")
+    static class UpdateCellsEvent extends Event {
+        /**
+         * How long it took
+         */
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        /**
+         * How many cells the board has
+         */
+        @Label("Cells")
+        int cells;
+    }
+
+    /**
+     * A reveal or chord, flood fill included
+     */
+    @Name("minesweeper.Reveal")
+    @Label("Reveal")
+    @Category("Minesweeper")
+    static class RevealEvent extends Event {
+        /**
+         * How long it took
+         */
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        /**
+         * How many cells were opened
+         */
+        @Label("Cells Revealed")
+        int cells;
+    }
+
+    /**
+     * The GUI reacting to a move, or painting the board
+     */
+    @Name("minesweeper.Render")
+    @Label("Render")
+    @Category("Minesweeper")
+    static class RenderEvent extends Event {
+        /**
+         * How long it took
+         */
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long nanos;
+        /**
+         * update for reacting to a move, or paint for painting
+         */
+        @Label("Phase")
+        String phase;
+        /**
+         * How many cells were changed or painted
+         */
+        @Label("Cells")
+        int cells;
+    }
+
+    /**
+     * A game starting or finishing
+     */
+    @Name("minesweeper.Game")
+    @Label("Game")
+    @Category("Minesweeper")
+    @Description("A game had its first cell revealed, or was won or lost")
+    static class GameEvent extends Event {
+        /**
+         * started, won, or lost
+         */
+        @Label("State")
+        String state;
+        /**
+         * How many cells the board has
+         */
+        @Label("Cells")
+        int cells;
+        /**
+         * How many mines the board has
+         */
+        @Label("Mines")
+        int mines;
+    }
+
+    /**
+     * Nothing should create metrics
+     */
+    private Metrics() {}
+
+    /**
+     * Records the mines of a board being placed
+     * @param start when placing started, from System.nanoTime()
+     * @param cells how many cells the board has
+     */
+    static void recordFillMines(long start, int cells) {
+        long nanos = System.nanoTime() - start;
+        FILL_MINES.record(nanos);
+
+        FillMinesEvent event = new FillMinesEvent();
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the cells of a board being numbered
+     * @param start when numbering started, from System.nanoTime()
+     * @param cells how many cells the board has
+     */
+    static void recordUpdateCells(long start, int cells) {
+        long nanos = System.nanoTime() - start;
+        UPDATE_CELLS.record(nanos);
+
+        UpdateCellsEvent event = new UpdateCellsEvent();
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a reveal or chord
+     * @param start when the move started, from System.nanoTime()
+     * @param cells how many cells the move opened
+     */
+    static void recordReveal(long start, int cells) {
+        long nanos = System.nanoTime() - start;
+        REVEAL.record(nanos);
+        REVEAL_CELLS.record(cells);
+
+        RevealEvent event = new RevealEvent();
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the GUI reacting to a move
+     * @param start when the GUI was told about the move, from System.nanoTime()
+     * @param cells how many cells the move changed
+     */
+    static void recordGuiUpdate(long start, int cells) {
+        long nanos = System.nanoTime() - start;
+        GUI_UPDATE.record(nanos);
+        commitRender(nanos, "update", cells);
+    }
+
+    /**
+     * Records a paint of the board
+     * @param start when painting started, from System.nanoTime()
+     * @param cells how many cells were painted
+     */
+    static void recordPaint(long start, int cells) {
+        long nanos = System.nanoTime() - start;
+        PAINT.record(nanos);
+        commitRender(nanos, "paint", cells);
+    }
+
+    /**
+     * Commits a render event if one is being recorded
+     * @param nanos how long the rendering took
+     * @param phase update or paint
+     * @param cells how many cells were changed or painted
+     */
+    private static void commitRender(long nanos, String phase, int cells) {
+        RenderEvent event = new RenderEvent();
+        if (event.shouldCommit()) {
+            event.nanos = nanos;
+            event.phase = phase;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * Records a game having its first cell revealed
+     * @param board the board of the game
+     */
+    static void recordGameStarted(Board board) {
+        GAMES_STARTED.increment();
+        commitGame(board, "started");
+    }
+
+    /**
+     * Records a game being won or lost
+     * @param board the board of the game
+     * @param won if the game was won rather than lost
+     */
+    static void recordGameFinished(Board board, boolean won) {
+        (won ? GAMES_WON : GAMES_LOST).increment();
+        commitGame(board, won ? "won" : "lost");
+    }
+
+    /**
+     * Commits a game event if one is being recorded
+     * @param board the board of the game
+     * @param state started, won, or lost
+     */
+    private static void commitGame(Board board, String state) {
+        GameEvent event = new GameEvent();
+        if (event.shouldCommit()) {
+            event.state = state;
+            event.cells = board.getWidth() * board.getHeight();
+            event.mines = board.getTotalMines();
+            event.commit();
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far
+     */
+    public static void reset() {
+        FILL_MINES.reset();
+        UPDATE_CELLS.reset();
+        REVEAL.reset();
+        REVEAL_CELLS.reset();
+        GUI_UPDATE.reset();
+        PAINT.reset();
+        GAMES_STARTED.reset();
+        GAMES_WON.reset();
+        GAMES_LOST.reset();
+    }
+
+    /**
+     * @return everything recorded so far, one metric per line (or a note saying metrics are off)
+     */
+    public static String dump() {
+        if (!ENABLED)
+            return "Metrics are off (run with -D" + PROPERTY + "=true)";
+
+        return String.format("fillMines     %s%n", FILL_MINES)
+                + String.format("updateCells   %s%n", UPDATE_CELLS)
+                + String.format("reveal        %s%n", REVEAL)
+                + String.format("reveal cells  count=%d mean=%.1f p50=%d p99=%d max=%d%n", REVEAL_CELLS.getCount(),
+                        REVEAL_CELLS.getMean(), REVEAL_CELLS.getPercentile(50), REVEAL_CELLS.getPercentile(99),
+                        REVEAL_CELLS.getMax())
+                + String.format("gui update    %s%n", GUI_UPDATE)
+                + String.format("paint         %s%n", PAINT)
+                + String.format("games         started=%d won=%d lost=%d", GAMES_STARTED.sum(), GAMES_WON.sum(),
+                        GAMES_LOST.sum());
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.random.RandomGenerator;
+
+/**
+ * Places mines on a BoardStorage uniformly at random. When few of the cells are mines, random indices are sampled
+ * and retried on a collision. Otherwise, a partial Fisher-Yates shuffle is run over the flat index range, so only as
+ * many swaps as there are mines are needed. Both strategies only draw from the given random generator, so any
+ * RandomGenerator can be used, and a generator made with the same seed always gives the same layout.
+ *
+ * A cell can also be kept safe along with its neighbors, so that a first click there always opens up the board. If
+ * there isn't room to keep the neighbors safe, only the cell itself is kept safe.
+ * @author Hudson Hadley
+ */
+public class MinePlacer {
+    /**
+     * At or below this fraction of mines, sampling and retrying on collisions is cheaper than shuffling
+     */
+    private static final double SPARSE_DENSITY = 0.5;
+
+    /**
+     * Nothing to construct, every method is static
+     */
+    private MinePlacer() {}
+
+    /**
+     * Places a certain amount of mines on cells of the storage which aren't mines yet.
+     * @param storage the storage we want to place the mines on (expected to have no mines)
+     * @param mines the amount of mines we want to place
+     * @param random the generator used to choose the cells
+     * @throws IllegalArgumentException if there are more mines than cells or the amount of mines is negative
+     */
+    public static void place(BoardStorage storage, int mines, RandomGenerator random) throws IllegalArgumentException {
+        place(storage, mines, random, -1, -1);
+    }
+
+    /**
+     * Places a certain amount of mines on cells of the storage which aren't mines yet, keeping a cell and (if there
+     * is room) its neighbors free of mines.
+     * @param storage the storage we want to place the mines on (expected to have no mines)
+     * @param mines the amount of mines we want to place
+     * @param random the generator used to choose the cells
+     * @param safeRow the row of the cell to keep safe, or -1 to allow mines anywhere
+     * @param safeCol the column of the cell to keep safe, or -1 to allow mines anywhere
+     * @throws IllegalArgumentException if there are more mines than cells that can hold them or the amount of mines
+     * is negative
+     */
+    public static void place(BoardStorage storage, int mines, RandomGenerator random, int safeRow, int safeCol)
+            throws IllegalArgumentException {
+        int size = storage.size();
+        int width = storage.getWidth();
+        int height = storage.getHeight();
+
+        // The rectangle of cells which must stay safe (empty if top > bottom)
+        int top = 0;
+        int bottom = -1;
+        int left = 0;
+        int right = -1;
+
+        if (safeRow != -1 && safeCol != -1) {
+            top = Math.max(safeRow - 1, 0);
+            bottom = Math.min(safeRow + 1, height - 1);
+            left = Math.max(safeCol - 1, 0);
+            right = Math.min(safeCol + 1, width - 1);
+
+            // If the neighbors can't all be kept safe, just keep the cell itself safe
+            if (mines > size - (bottom - top + 1) * (right - left + 1)) {
+                top = bottom = safeRow;
+                left = right = safeCol;
+            }
+        }
+
+        int safeCells = bottom < top ? 0 : (bottom - top + 1) * (right - left + 1);
+        if (mines < 0 || mines > size - safeCells)
+            throw new IllegalArgumentException("mines must be between 0 and the amount of cells");
+
+        if (mines <= (size - safeCells) * SPARSE_DENSITY)
+            placeSparse(storage, mines, random, top, bottom, left, right);
+        else
+            placeShuffled(storage, mines, random, top, bottom, left, right);
+    }
+
+    /**
+     * Samples random cells, retrying whenever the cell is already a mine or has to stay safe
+     * @param storage the storage we want to place the mines on
+     * @param mines the amount of mines we want to place
+     * @param random the generator used to choose the cells
+     */
+    private static void placeSparse(BoardStorage storage, int mines, RandomGenerator random,
+                                    int top, int bottom, int left, int right) {
+        int size = storage.size();
+        int width = storage.getWidth();
+        int placed = 0;
+
+        while (placed < mines) {
+            int index = random.nextInt(size);
+            if (storage.isMine(index) || isSafe(index / width, index % width, top, bottom, left, right))
+                continue;
+
+            storage.makeMine(index);
+            placed++;
+        }
+    }
+
+    /**
+     * Shuffles the first mines entries of the range of cells which can hold a mine into place and makes each of them
+     * a mine
+     * @param storage the storage we want to place the mines on
+     * @param mines the amount of mines we want to place
+     * @param random the generator used to choose the cells
+     */
+    private static void placeShuffled(BoardStorage storage, int mines, RandomGenerator random,
+                                      int top, int bottom, int left, int right) {
+        int size = storage.size();
+        int width = storage.getWidth();
+        int safeCells = bottom < top ? 0 : (bottom - top + 1) * (right - left + 1);
+
+        int[] indices = new int[size - safeCells];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isSafe(i / width, i % width, top, bottom, left, right))
+                indices[count++] = i;
+        }
+
+        for (int i = 0; i < mines; i++) {
+            // Swap a random index from the part we haven't chosen yet into position i
+            int j = i + random.nextInt(count - i);
+            int chosen = indices[j];
+            indices[j] = indices[i];
+            indices[i] = chosen;
+
+            storage.makeMine(chosen);
+        }
+    }
+
+    /**
+     * @return true if the cell is inside the rectangle of cells which must stay safe
+     */
+    private static boolean isSafe(int row, int col, int top, int bottom, int left, int right) {
+        return top <= row && row <= bottom && left <= col && col <= right;
+    }
+}
@@ -0,0 +1,649 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Works out the exact probability that each hidden cell of a board is a mine, given the revealed numbers and the
+ * total amount of mines. Flags are not trusted, since the player may have placed them wrongly.
+ *
+ * The hidden cells touching a revealed number (the frontier) are split into components, where two cells are in the
+ * same component if some number touches both. Each component is counted on its own, cell by cell in breadth first
+ * order. Once the first cells have been given values, the rest of the component only depends on how many mines each
+ * number which is still open needs, so assignments which leave the same needs behind are counted together rather than
+ * explored again. This keeps the work in proportion to the amount of distinct needs rather than the amount of
+ * solutions, which are exponential in the size of the component. The components are then combined, weighting each
+ * total amount of frontier mines by the number of ways the remaining mines can be spread over the hidden cells off
+ * the frontier. Results for a component are also remembered between calls, so asking again after a move only counts
+ * the components the move changed.
+ * @author Hudson Hadley
+ */
+public class MineProbability {
+    /**
+     * The board the probabilities are for
+     */
+    private final Board board;
+    /**
+     * The width of the board
+     */
+    private final int width;
+    /**
+     * The height of the board
+     */
+    private final int height;
+    /**
+     * Solutions of components which have already been counted, keyed by their cells and constraints
+     */
+    private final Map<ArrayKey, ComponentResult> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a probability engine for a board
+     * @param board the board we want probabilities for
+     */
+    public MineProbability(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+    }
+
+    /**
+     * Works out the probability of each cell being a mine
+     * @return the probability of each cell being a mine, indexed by row * width + col. Revealed cells are 0, or 1 if
+     * they are a mine.
+     * @throws IllegalStateException if the revealed numbers can't all be satisfied
+     */
+    public double[] compute() throws IllegalStateException {
+        int size = width * height;
+        double[] probabilities = new double[size];
+
+        // Find the numbers touching hidden cells, the hidden cells they touch, and how many mines are unaccounted for
+        List<int[]> constraints = new ArrayList<>();
+        int hidden = 0;
+        int minesLeft = board.getTotalMines();
+
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (!board.isRevealed(i, j)) {
+                    hidden++;
+                } else if (board.isMine(i, j)) {
+                    probabilities[i * width + j] = 1;
+                    minesLeft--;
+                } else if (!board.isBlank(i, j)) {
+                    int[] constraint = makeConstraint(i, j);
+                    if (constraint != null)
+                        constraints.add(constraint);
+                }
+            }
+        }
+
+        // Number the frontier cells in the order they are first touched, and refer to them by number from now on
+        int[] frontierId = new int[size];
+        Arrays.fill(frontierId, -1);
+        int[] frontierCells = new int[hidden];
+        int frontierSize = 0;
+        for (int[] constraint : constraints) {
+            for (int k = 1; k < constraint.length; k++) {
+                int index = constraint[k];
+                if (frontierId[index] == -1) {
+                    frontierId[index] = frontierSize;
+                    frontierCells[frontierSize++] = index;
+                }
+                constraint[k] = frontierId[index];
+            }
+        }
+
+        int offFrontier = hidden - frontierSize;
+        List<Component> components = splitComponents(Arrays.copyOf(frontierCells, frontierSize), constraints);
+
+        // Count each component, in parallel when there is more than one
+        List<ComponentResult> results = new ArrayList<>(components.size());
+        if (components.size() > 1) {
+            ComponentResult[] solved = new ComponentResult[components.size()];
+            IntStream.range(0, components.size()).parallel()
+                    .forEach(c -> solved[c] = solve(components.get(c)));
+            results.addAll(Arrays.asList(solved));
+        } else {
+            for (Component component : components)
+                results.add(solve(component));
+        }
+
+        // Only remember the components which are still on the board
+        List<ArrayKey> keys = new ArrayList<>(components.size());
+        for (Component component : components)
+            keys.add(component.key);
+        cache.keySet().retainAll(keys);
+
+        combine(components, results, offFrontier, minesLeft, probabilities);
+        return probabilities;
+    }
+
+    /**
+     * Builds the constraint of a revealed number: the hidden cells it touches and how many of them are mines
+     * @return the constraint as {mines, cell, cell, ...} with cells as flat indices, or null if it touches no hidden
+     * cells
+     */
+    private int[] makeConstraint(int row, int col) {
+        int[] cells = new int[9];
+        int count = 1;
+        int mines = board.getNumber(row, col);
+
+        for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, height - 1); i++) {
+            for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, width - 1); j++) {
+                if (board.isRevealed(i, j)) {
+                    if (board.isMine(i, j))
+                        mines--;
+                    continue;
+                }
+
+                cells[count++] = i * width + j;
+            }
+        }
+
+        if (count == 1)
+            return null;
+
+        cells[0] = mines;
+        return Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * Splits the frontier into components of cells linked by shared constraints, ordering the cells of each
+     * component breadth first so that constraints are closed off soon after they are opened while counting
+     */
+    private List<Component> splitComponents(int[] frontierCells, List<int[]> constraints) {
+        int cellCount = frontierCells.length;
+
+        // The constraints touching each frontier cell, packed one cell after another
+        int[] start = new int[cellCount + 1];
+        for (int[] constraint : constraints) {
+            for (int k = 1; k < constraint.length; k++)
+                start[constraint[k] + 1]++;
+        }
+        for (int i = 0; i < cellCount; i++)
+            start[i + 1] += start[i];
+        int[] cellConstraints = new int[start[cellCount]];
+        int[] filled = Arrays.copyOf(start, cellCount);
+        for (int c = 0; c < constraints.size(); c++) {
+            int[] constraint = constraints.get(c);
+            for (int k = 1; k < constraint.length; k++)
+                cellConstraints[filled[constraint[k]]++] = c;
+        }
+
+        List<Component> components = new ArrayList<>();
+        boolean[] visited = new boolean[cellCount];
+        boolean[] added = new boolean[constraints.size()];
+        int[] queue = new int[cellCount];
+
+        for (int first = 0; first < cellCount; first++) {
+            if (visited[first])
+                continue;
+
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = first;
+            visited[first] = true;
+            List<int[]> componentConstraints = new ArrayList<>();
+
+            while (head < tail) {
+                int cell = queue[head++];
+                for (int i = start[cell]; i < start[cell + 1]; i++) {
+                    int c = cellConstraints[i];
+                    if (added[c])
+                        continue;
+
+                    int[] constraint = constraints.get(c);
+                    added[c] = true;
+                    componentConstraints.add(constraint);
+
+                    for (int k = 1; k < constraint.length; k++) {
+                        if (!visited[constraint[k]]) {
+                            visited[constraint[k]] = true;
+                            queue[tail++] = constraint[k];
+                        }
+                    }
+                }
+            }
+
+            int[] cells = new int[tail];
+            for (int k = 0; k < tail; k++)
+                cells[k] = frontierCells[queue[k]];
+            components.add(new Component(cells, queue, componentConstraints, cellCount));
+        }
+
+        return components;
+    }
+
+    /**
+     * Counts a component, or returns the remembered result if the same component has been counted before
+     */
+    private ComponentResult solve(Component component) {
+        ComponentResult result = cache.get(component.key);
+        if (result == null) {
+            result = component.enumerate();
+            cache.put(component.key, result);
+        }
+        return result;
+    }
+
+    /**
+     * Combines the components with the cells off the frontier, and fills in the probability of every hidden cell
+     * @throws IllegalStateException if the revealed numbers can't all be satisfied
+     */
+    private void combine(List<Component> components, List<ComponentResult> results, int offFrontier, int minesLeft,
+                         double[] probabilities) throws IllegalStateException {
+        int count = components.size();
+
+        // prefix[c] holds the ways the first c components can use each amount of mines, suffix[c] the last ones
+        double[][] prefix = new double[count + 1][];
+        double[][] suffix = new double[count + 1][];
+        prefix[0] = new double[]{1};
+        suffix[count] = new double[]{1};
+        for (int c = 0; c < count; c++)
+            prefix[c + 1] = convolve(prefix[c], results.get(c).ways);
+        for (int c = count - 1; c >= 0; c--)
+            suffix[c] = convolve(results.get(c).ways, suffix[c + 1]);
+
+        // How much each total amount of frontier mines is worth, given the ways to place the rest off the frontier
+        double[] all = prefix[count];
+        double[] weight = binomialWeights(offFrontier, minesLeft, all);
+        double total = 0;
+        double offFrontierMines = 0;
+        for (int t = 0; t < all.length; t++) {
+            total += all[t] * weight[t];
+            offFrontierMines += all[t] * weight[t] * (minesLeft - t);
+        }
+
+        if (total == 0 || Double.isNaN(total))
+            throw new IllegalStateException("the revealed numbers can't be satisfied");
+
+        for (int c = 0; c < count; c++) {
+            Component component = components.get(c);
+            ComponentResult result = results.get(c);
+            double[] others = convolve(prefix[c], suffix[c + 1]);
+
+            for (int k = 0; k < component.cells.length; k++) {
+                double mine = 0;
+                double[] cellWays = result.cellWays[k];
+                for (int m = 0; m < cellWays.length; m++) {
+                    if (cellWays[m] == 0)
+                        continue;
+                    for (int o = 0; o < others.length; o++)
+                        mine += cellWays[m] * others[o] * weight[m + o];
+                }
+                probabilities[component.cells[k]] = mine / total;
+            }
+        }
+
+        // Every hidden cell off the frontier is equally likely to hold the mines that are left
+        if (offFrontier > 0) {
+            double offProbability = offFrontierMines / total / offFrontier;
+            boolean[] onFrontier = new boolean[width * height];
+            for (Component component : components) {
+                for (int cell : component.cells)
+                    onFrontier[cell] = true;
+            }
+
+            for (int i = 0; i < height; i++) {
+                for (int j = 0; j < width; j++) {
+                    int index = i * width + j;
+                    if (!board.isRevealed(i, j) && !onFrontier[index])
+                        probabilities[index] = offProbability;
+                }
+            }
+        }
+    }
+
+    /**
+     * Works out, for each amount t of mines on the frontier, a value proportional to the number of ways the
+     * remaining mines can be placed on the cells off the frontier (offFrontier choose minesLeft - t). The values are
+     * scaled so the largest among the amounts the frontier can actually hold is 1, which keeps them from overflowing
+     * on large boards, and from underflowing when those amounts are far from the likeliest one.
+     */
+    private static double[] binomialWeights(int offFrontier, int minesLeft, double[] frontierWays) {
+        double[] logWeight = new double[frontierWays.length];
+        double max = Double.NEGATIVE_INFINITY;
+
+        for (int t = 0; t < frontierWays.length; t++) {
+            int k = minesLeft - t;
+            logWeight[t] = k < 0 || k > offFrontier ? Double.NEGATIVE_INFINITY : logChoose(offFrontier, k);
+            if (frontierWays[t] != 0)
+                max = Math.max(max, logWeight[t]);
+        }
+
+        double[] weight = new double[frontierWays.length];
+        for (int t = 0; t < frontierWays.length; t++)
+            weight[t] = max == Double.NEGATIVE_INFINITY || frontierWays[t] == 0 ? 0 : Math.exp(logWeight[t] - max);
+        return weight;
+    }
+
+    /**
+     * @return the natural log of n choose k
+     */
+    private static double logChoose(int n, int k) {
+        k = Math.min(k, n - k);
+        double result = 0;
+        for (int i = 1; i <= k; i++)
+            result += Math.log((double) (n - k + i) / i);
+        return result;
+    }
+
+    /**
+     * @return the convolution of two distributions over amounts of mines
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        addConvolution(result, a, b, 0);
+        return result;
+    }
+
+    /**
+     * Adds the convolution of two distributions over amounts of mines to another, shifted by some amount of mines
+     */
+    private static void addConvolution(double[] result, double[] a, double[] b, int shift) {
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == 0)
+                continue;
+            for (int j = 0; j < b.length; j++)
+                result[i + j + shift] += a[i] * b[j];
+        }
+    }
+
+    /**
+     * Scales a group of distributions together so the largest value in any of them is 1, which keeps the counts of
+     * large components from overflowing
+     */
+    private static void normalize(Collection<double[]> distributions) {
+        double max = 0;
+        for (double[] distribution : distributions) {
+            for (double value : distribution)
+                max = Math.max(max, value);
+        }
+
+        if (max > 0) {
+            for (double[] distribution : distributions) {
+                for (int m = 0; m < distribution.length; m++)
+                    distribution[m] /= max;
+            }
+        }
+    }
+
+    /**
+     * An array of ints compared by value, used as the key of a component (its cells followed by each constraint) and
+     * of a counting state (what each open constraint still needs)
+     */
+    private static class ArrayKey {
+        /**
+         * The values being compared
+         */
+        private final int[] data;
+        /**
+         * The hash of the data
+         */
+        private final int hash;
+
+        ArrayKey(int[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ArrayKey && Arrays.equals(data, ((ArrayKey) other).data);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The solutions of a component counted by the amount of mines they use
+     */
+    private static class ComponentResult {
+        /**
+         * ways[m] is proportional to the number of solutions with m mines
+         */
+        private final double[] ways;
+        /**
+         * cellWays[k][m] is proportional to the number of solutions with m mines where cell k is a mine
+         */
+        private final double[][] cellWays;
+
+        ComponentResult(double[] ways, double[][] cellWays) {
+            this.ways = ways;
+            this.cellWays = cellWays;
+        }
+    }
+
+    /**
+     * A connected group of frontier cells along with the constraints touching them
+     */
+    private static class Component {
+        /**
+         * The state before any cell has been given a value, and after every cell has, when no constraint is open
+         */
+        private static final ArrayKey NOTHING_OPEN = new ArrayKey(new int[0]);
+
+        /**
+         * The flat indices of the cells, in the order they are assigned
+         */
+        private final int[] cells;
+        /**
+         * How many mines each constraint needs before any of its cells are assigned
+         */
+        private final int[] initial;
+        /**
+         * The first cell of each constraint (by position in cells)
+         */
+        private final int[] firstCell;
+        /**
+         * The constraints touching each cell (by position in cells)
+         */
+        private final int[][] cellConstraints;
+        /**
+         * after[k][i] is how many cells of the i-th constraint of cell k come after cell k
+         */
+        private final int[][] after;
+        /**
+         * open[k] is the constraints with some cells before cell k and some from cell k on, whose needs make up the
+         * state once the cells before cell k have been assigned
+         */
+        private final int[][] open;
+        /**
+         * The key the result of this component is remembered by
+         */
+        private final ArrayKey key;
+
+        /**
+         * How many mines each constraint still needs, filled in from a state while working out the next one
+         */
+        private final int[] needed;
+
+        Component(int[] cells, int[] order, List<int[]> constraints, int frontierSize) {
+            this.cells = cells;
+
+            // Where each frontier id sits in this component
+            int[] position = new int[frontierSize];
+            for (int k = 0; k < cells.length; k++)
+                position[order[k]] = k;
+
+            initial = new int[constraints.size()];
+            needed = new int[constraints.size()];
+            firstCell = new int[constraints.size()];
+            int[] lastCell = new int[constraints.size()];
+            int[] constraintCount = new int[cells.length];
+            int keyLength = cells.length;
+            for (int c = 0; c < constraints.size(); c++) {
+                int[] constraint = constraints.get(c);
+                initial[c] = constraint[0];
+                firstCell[c] = cells.length;
+                lastCell[c] = -1;
+                for (int k = 1; k < constraint.length; k++) {
+                    int cell = position[constraint[k]];
+                    constraintCount[cell]++;
+                    firstCell[c] = Math.min(firstCell[c], cell);
+                    lastCell[c] = Math.max(lastCell[c], cell);
+                }
+                keyLength += constraint.length + 1;
+            }
+
+            cellConstraints = new int[cells.length][];
+            for (int k = 0; k < cells.length; k++)
+                cellConstraints[k] = new int[constraintCount[k]];
+            int[] filled = new int[cells.length];
+            int[] keyData = new int[keyLength];
+            System.arraycopy(cells, 0, keyData, 0, cells.length);
+            int keyPosition = cells.length;
+
+            for (int c = 0; c < constraints.size(); c++) {
+                int[] constraint = constraints.get(c);
+                keyData[keyPosition++] = -1;
+                keyData[keyPosition++] = constraint[0];
+                for (int k = 1; k < constraint.length; k++) {
+                    int cell = position[constraint[k]];
+                    cellConstraints[cell][filled[cell]++] = c;
+                    keyData[keyPosition++] = cells[cell];
+                }
+            }
+
+            key = new ArrayKey(keyData);
+
+            // Count the cells of each constraint from the end, so each cell knows how many of them follow it
+            after = new int[cells.length][];
+            int[] later = new int[constraints.size()];
+            for (int k = cells.length - 1; k >= 0; k--) {
+                after[k] = new int[cellConstraints[k].length];
+                for (int i = 0; i < cellConstraints[k].length; i++)
+                    after[k][i] = later[cellConstraints[k][i]]++;
+            }
+
+            open = new int[cells.length + 1][];
+            int[] buffer = new int[constraints.size()];
+            for (int k = 0; k <= cells.length; k++) {
+                int count = 0;
+                for (int c = 0; c < constraints.size(); c++) {
+                    if (firstCell[c] < k && lastCell[c] >= k)
+                        buffer[count++] = c;
+                }
+                open[k] = Arrays.copyOf(buffer, count);
+            }
+        }
+
+        /**
+         * Counts every assignment of mines to the cells which satisfies the constraints. A forward pass finds every
+         * state reachable after each cell along with the ways of reaching it, and a backward pass the ways of
+         * finishing from each of those states, so each cell's count is the sum over the states it passes through.
+         * @return the solutions counted by amount of mines, scaled so the largest count is 1
+         */
+        ComponentResult enumerate() {
+            int size = cells.length;
+
+            // forward.get(k) holds the ways of assigning the first k cells to reach each state, counted by mines
+            List<Map<ArrayKey, double[]>> forward = new ArrayList<>(size + 1);
+            Map<ArrayKey, double[]> start = new HashMap<>();
+            start.put(NOTHING_OPEN, new double[]{1});
+            forward.add(start);
+
+            for (int k = 0; k < size; k++) {
+                int length = k + 2;
+                Map<ArrayKey, double[]> layer = new HashMap<>();
+                for (Map.Entry<ArrayKey, double[]> entry : forward.get(k).entrySet()) {
+                    double[] from = entry.getValue();
+                    for (int value = 0; value <= 1; value++) {
+                        ArrayKey next = next(k, entry.getKey(), value);
+                        if (next == null)
+                            continue;
+
+                        double[] to = layer.computeIfAbsent(next, state -> new double[length]);
+                        for (int m = 0; m < from.length; m++)
+                            to[m + value] += from[m];
+                    }
+                }
+                normalize(layer.values());
+                forward.add(layer);
+            }
+
+            // backward holds the ways of assigning the cells from k on from each state, counted by mines
+            Map<ArrayKey, double[]> backward = new HashMap<>();
+            backward.put(NOTHING_OPEN, new double[]{1});
+            double[][] cellWays = new double[size][];
+
+            for (int k = size - 1; k >= 0; k--) {
+                Map<ArrayKey, double[]> layer = new HashMap<>();
+                double[] total = new double[size + 1];
+                double[] mine = new double[size + 1];
+
+                for (Map.Entry<ArrayKey, double[]> entry : forward.get(k).entrySet()) {
+                    double[] before = entry.getValue();
+                    double[] rest = new double[size - k + 1];
+                    for (int value = 0; value <= 1; value++) {
+                        ArrayKey next = next(k, entry.getKey(), value);
+                        double[] finish = next == null ? null : backward.get(next);
+                        if (finish == null)
+                            continue;
+
+                        for (int m = 0; m < finish.length; m++)
+                            rest[m + value] += finish[m];
+                        if (value == 1)
+                            addConvolution(mine, before, finish, 1);
+                    }
+
+                    addConvolution(total, before, rest, 0);
+                    layer.put(entry.getKey(), rest);
+                }
+
+                // Only the share of the solutions with cell k as a mine is kept, since the scales of each pass differ
+                for (int m = 0; m <= size; m++)
+                    mine[m] = total[m] == 0 ? 0 : mine[m] / total[m];
+                cellWays[k] = mine;
+
+                normalize(layer.values());
+                backward = layer;
+                forward.set(k + 1, null);
+            }
+
+            double[] ways = backward.get(NOTHING_OPEN);
+            for (double[] cellWay : cellWays) {
+                for (int m = 0; m <= size; m++)
+                    cellWay[m] *= ways[m];
+            }
+
+            return new ComponentResult(ways, cellWays);
+        }
+
+        /**
+         * Works out the state after giving a cell a value
+         * @param position which cell we are assigning
+         * @param state what each open constraint needs before the cell is assigned
+         * @param value 1 if the cell is a mine, 0 if not
+         * @return what each open constraint needs after the cell is assigned, or null if one of the constraints of the
+         * cell can no longer be satisfied
+         */
+        private ArrayKey next(int position, ArrayKey state, int value) {
+            int[] before = open[position];
+            for (int i = 0; i < before.length; i++)
+                needed[before[i]] = state.data[i];
+
+            int[] touched = cellConstraints[position];
+            for (int i = 0; i < touched.length; i++) {
+                // A constraint which isn't open yet starts at this cell
+                int c = touched[i];
+                int stillNeeded = (firstCell[c] == position ? initial[c] : needed[c]) - value;
+                if (stillNeeded < 0 || stillNeeded > after[position][i])
+                    return null;
+                needed[c] = stillNeeded;
+            }
+
+            int[] now = open[position + 1];
+            int[] data = new int[now.length];
+            for (int i = 0; i < now.length; i++)
+                data[i] = needed[now[i]];
+            return new ArrayKey(data);
+        }
+    }
+}
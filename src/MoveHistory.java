@@ -0,0 +1,214 @@
+import java.util.Arrays;
+
+/**
+ * The undo and redo history of a board. Each move is stored as the flat indices of the cells it changed, so undoing
+ * or redoing a move only costs as much as the move changed. The indices of every move sit back to back in a single
+ * array, oldest first, with a second array marking where each move ends. Moves which have been undone stay above the
+ * current position until they are redone or a new move replaces them.
+ *
+ * The history holds at most a certain amount of cells. Once it goes over, any moves waiting to be redone are
+ * forgotten first, since they could only be redone on top of the moves before them, and then the oldest moves until
+ * it is down to half, so forgetting is rare and its cost is spread over many moves. A single move larger than the
+ * limit clears the history instead. The arrays never grow past twice the limit, and shrink again when the limit is
+ * lowered, so the memory held stays bounded by the limit.
+ * @author Hudson Hadley
+ */
+class MoveHistory {
+    /**
+     * The kind of a move which revealed cells
+     */
+    static final byte REVEAL = 0;
+    /**
+     * The kind of a move which flagged or unflagged a cell
+     */
+    static final byte FLAG = 1;
+
+    /**
+     * The flat indices of the cells changed by every move, oldest first (empty until the first move, so a board
+     * which is never played costs nothing)
+     */
+    private int[] cells = new int[0];
+    /**
+     * Where the cells of each move end in cells (exclusive)
+     */
+    private int[] ends = new int[0];
+    /**
+     * The kind of each move
+     */
+    private byte[] kinds = new byte[0];
+    /**
+     * How many moves are stored, including the ones which have been undone
+     */
+    private int moves;
+    /**
+     * How many of the stored moves are currently applied. The rest can be redone.
+     */
+    private int applied;
+    /**
+     * The most cells the history can hold
+     */
+    private int limit;
+
+    /**
+     * Creates an empty history
+     * @param limit the most cells the history can hold
+     */
+    MoveHistory(int limit) {
+        setLimit(limit);
+    }
+
+    /**
+     * Changes the most cells the history can hold, forgetting the oldest moves if it holds more
+     * @param limit the most cells the history can hold (0 turns the history off)
+     * @throws IllegalArgumentException if the limit is negative
+     */
+    void setLimit(int limit) throws IllegalArgumentException {
+        if (limit < 0)
+            throw new IllegalArgumentException("limit must be non-negative");
+
+        this.limit = limit;
+        trim();
+    }
+
+    /**
+     * Stores a move which was just made, forgetting every move which could have been redone
+     * @param kind the kind of move
+     * @param changes the cells the move changed
+     */
+    void record(byte kind, ChangeSet changes) {
+        moves = applied;
+        if (limit == 0 || changes.size() > limit) {
+            // The move could never be kept, and the moves before it can't be undone without undoing it first
+            moves = 0;
+            applied = 0;
+            trim();
+            return;
+        }
+
+        int start = end(moves - 1);
+        int end = start + changes.size();
+        if (end > cells.length)
+            cells = Arrays.copyOf(cells, (int) Math.min(Math.max(end, cells.length * 2L), Math.max(end, limit)));
+        if (moves == ends.length) {
+            ends = Arrays.copyOf(ends, Math.max(moves * 2, 16));
+            kinds = Arrays.copyOf(kinds, Math.max(moves * 2, 16));
+        }
+
+        for (int i = 0; i < changes.size(); i++)
+            cells[start + i] = changes.get(i);
+        ends[moves] = end;
+        kinds[moves] = kind;
+        moves++;
+        applied++;
+
+        trim();
+    }
+
+    /**
+     * @return true if there is a move to undo
+     */
+    boolean canUndo() {
+        return applied > 0;
+    }
+
+    /**
+     * @return true if there is a move to redo
+     */
+    boolean canRedo() {
+        return applied < moves;
+    }
+
+    /**
+     * Steps back over the most recent applied move
+     * @return the move which should be undone
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    int undo() throws IllegalStateException {
+        if (!canUndo())
+            throw new IllegalStateException("nothing to undo");
+        return --applied;
+    }
+
+    /**
+     * Steps forward over the next move which was undone
+     * @return the move which should be redone
+     * @throws IllegalStateException if there is nothing to redo
+     */
+    int redo() throws IllegalStateException {
+        if (!canRedo())
+            throw new IllegalStateException("nothing to redo");
+        return applied++;
+    }
+
+    /**
+     * @param move a stored move
+     * @return the kind of the move
+     */
+    byte getKind(int move) {
+        return kinds[move];
+    }
+
+    /**
+     * @param move a stored move
+     * @return where the cells of the move start in the history
+     */
+    int start(int move) {
+        return end(move - 1);
+    }
+
+    /**
+     * @param move a stored move, or -1 for the start of the history
+     * @return where the cells of the move end in the history (exclusive)
+     */
+    int end(int move) {
+        return move < 0 ? 0 : ends[move];
+    }
+
+    /**
+     * @param i a position between the start and end of a move
+     * @return the flat index of the cell at that position
+     */
+    int getCell(int i) {
+        return cells[i];
+    }
+
+    /**
+     * Forgets moves until the history is back within its limit, if it has gone over: first the moves waiting to be
+     * redone, then the oldest moves until it is down to half its limit. Then gives back any memory well beyond what
+     * the limit needs.
+     */
+    private void trim() {
+        if (end(moves - 1) > limit) {
+            // Moves which were undone only make sense on top of every move before them, so they can't outlive them
+            moves = applied;
+        }
+
+        if (end(moves - 1) > limit) {
+            // Find how many of the oldest moves have to go
+            int target = limit / 2;
+            int total = end(moves - 1);
+            int dropped = 0;
+            while (dropped < moves && total - ends[dropped] > target)
+                dropped++;
+            dropped = Math.min(dropped + 1, moves);
+
+            int offset = ends[dropped - 1];
+            System.arraycopy(cells, offset, cells, 0, total - offset);
+            for (int i = dropped; i < moves; i++) {
+                ends[i - dropped] = ends[i] - offset;
+                kinds[i - dropped] = kinds[i];
+            }
+
+            moves -= dropped;
+            applied = moves;
+        }
+
+        // Every move changes at least one cell, so the limit bounds the moves as well as the cells
+        if (cells.length / 2 > limit)
+            cells = Arrays.copyOf(cells, Math.max(end(moves - 1), limit));
+        if (ends.length / 2 > Math.max(limit, 16)) {
+            ends = Arrays.copyOf(ends, Math.max(moves, 16));
+            kinds = Arrays.copyOf(kinds, Math.max(moves, 16));
+        }
+    }
+}
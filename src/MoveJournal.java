@@ -0,0 +1,582 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every reveal, flag, chord, undo and redo made on a board into an append-only file, so the game can be
+ * replayed move for move. The header holds everything needed to make the same board again (its size, mines, seed, and
+ * the cell kept safe), and each move after it is two varints: the flat index of the cell shifted left by three with
+ * the kind of move in the low bits (undo and redo have no cell), then the microseconds since the previous move. A move
+ * usually takes three or four bytes.
+ *
+ * Moves are buffered, and a background thread writes the buffer out once the first move in it has waited a tenth of
+ * a second, so the file is never more than that behind the game while a scripted game still writes in large blocks.
+ *
+ * The board must be fresh when the journal is attached, and must have been made from its seed rather than loaded
+ * from a snapshot, since the replay makes the board again from the seed.
+ * @author Hudson Hadley
+ */
+public class MoveJournal implements Closeable {
+    /**
+     * The system property naming the directory the front ends write their journals to
+     */
+    public static final String DIRECTORY_PROPERTY = "minesweeper.journal";
+
+    /**
+     * The kind of a reveal
+     */
+    public static final int REVEAL = 0;
+    /**
+     * The kind of a flag
+     */
+    public static final int FLAG = 1;
+    /**
+     * The kind of an undo
+     */
+    public static final int UNDO = 2;
+    /**
+     * The kind of a redo
+     */
+    public static final int REDO = 3;
+    /**
+     * The kind of a chord
+     */
+    public static final int CHORD = 4;
+
+    /**
+     * The first four bytes of every journal
+     */
+    private static final int MAGIC = 0x4D53574A;
+    /**
+     * The version of the format written by this class
+     */
+    private static final int VERSION = 1;
+    /**
+     * The bits of an entry which hold the kind of move
+     */
+    private static final int KIND_BITS = 3;
+    /**
+     * How many bytes are buffered before they are written to the file
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * How long a move can wait in the buffer before it is written to the file in milliseconds
+     */
+    private static final long FLUSH_DELAY_MILLIS = 100;
+    /**
+     * Writes out the buffers of every journal once their moves have waited long enough (a daemon thread, so it
+     * doesn't keep the JVM running)
+     */
+    private static final ScheduledExecutorService FLUSHER = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "journal-flusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * Where the entries are written
+     */
+    private final DataOutputStream out;
+    /**
+     * The board being recorded
+     */
+    private final Board board;
+    /**
+     * Records the moves made on the board
+     */
+    private final BoardListener recorder;
+    /**
+     * When the previous move was made in nanoseconds
+     */
+    private long lastMoveNanos;
+    /**
+     * How many moves have been recorded
+     */
+    private long moves;
+    /**
+     * If the buffer holds moves which a flush has already been scheduled for
+     */
+    private boolean flushScheduled;
+    /**
+     * If the journal has been closed, after which moves are no longer recorded
+     */
+    private boolean closed;
+    /**
+     * Closes the journal if the JVM exits while it is open, or null if it isn't registered
+     */
+    private Thread closeOnExit;
+
+    /**
+     * Starts a journal for a board, which records every move made on it until it is closed
+     * @param board the board we want to record (expected to have no moves made yet)
+     * @param path where the journal is written, replacing the file if it already exists
+     * @throws IllegalArgumentException if the board already has cells revealed or flagged
+     * @throws IOException if the file can't be written
+     */
+    public MoveJournal(Board board, Path path) throws IllegalArgumentException, IOException {
+        this(board, Files.newOutputStream(path));
+    }
+
+    /**
+     * Starts a journal for a board, which records every move made on it until it is closed
+     * @param board the board we want to record (expected to have no moves made yet)
+     * @param stream where the journal is written (closed along with the journal)
+     * @throws IllegalArgumentException if the board already has cells revealed or flagged
+     * @throws IOException if the header can't be written
+     */
+    public MoveJournal(Board board, OutputStream stream) throws IllegalArgumentException, IOException {
+        if (board.getFlagCount() != 0 || hasRevealedCells(board))
+            throw new IllegalArgumentException("board already has moves made on it");
+
+        this.board = board;
+        this.out = new DataOutputStream(new BufferedOutputStream(stream, BUFFER_SIZE));
+
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeBoolean(board.hasPlacedMines());
+        out.writeInt(board.getWidth());
+        out.writeInt(board.getHeight());
+        out.writeInt(board.getTotalMines());
+        out.writeLong(board.getSeed());
+        out.writeInt(board.getSafeRow());
+        out.writeInt(board.getSafeCol());
+        out.writeLong(System.currentTimeMillis());
+
+        // The file can be read back as soon as it exists, even before any move has been written out
+        out.flush();
+        lastMoveNanos = System.nanoTime();
+
+        recorder = new BoardListener() {
+            @Override
+            public void cellsChanged(Board board, ChangeSet changes) {}
+
+            @Override
+            public void revealMade(Board board, int row, int col) {
+                record(REVEAL, row * board.getWidth() + col);
+            }
+
+            @Override
+            public void flagMade(Board board, int row, int col) {
+                record(FLAG, row * board.getWidth() + col);
+            }
+
+            @Override
+            public void chordMade(Board board, int row, int col) {
+                record(CHORD, row * board.getWidth() + col);
+            }
+
+            @Override
+            public void undoMade(Board board) {
+                record(UNDO, 0);
+            }
+
+            @Override
+            public void redoMade(Board board) {
+                record(REDO, 0);
+            }
+        };
+        board.addBoardListener(recorder);
+    }
+
+    /**
+     * @param board a board
+     * @return true if any cell of the board has been revealed
+     */
+    private static boolean hasRevealedCells(Board board) {
+        BoardStorage cells = board.getCells();
+        for (int i = 0; i < cells.size(); i++) {
+            if (cells.isRevealed(i))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Appends a move to the journal, and schedules the buffer to be written out if it was empty
+     * @param kind the kind of move
+     * @param index the flat index of the cell
+     */
+    private synchronized void record(int kind, int index) {
+        if (closed)
+            return;
+
+        long now = System.nanoTime();
+        try {
+            writeVarLong(out, ((long) index << KIND_BITS) | kind);
+            writeVarLong(out, (now - lastMoveNanos) / 1000);
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not write to the journal", e);
+        }
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            FLUSHER.schedule(this::scheduledFlush, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        lastMoveNanos = now;
+        moves++;
+    }
+
+    /**
+     * Writes out the buffer once its first move has waited long enough
+     */
+    private synchronized void scheduledFlush() {
+        flushScheduled = false;
+        try {
+            flush();
+        } catch (IOException e) {
+            System.err.println("Could not write to the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return how many moves have been recorded
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Writes any buffered moves to the file
+     * @throws IOException if they can't be written
+     */
+    public synchronized void flush() throws IOException {
+        if (!closed)
+            out.flush();
+    }
+
+    /**
+     * Stops recording and closes the file. Closing a journal which is already closed does nothing.
+     * @throws IOException if the buffered moves can't be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed)
+            return;
+
+        closed = true;
+        if (closeOnExit != null && Thread.currentThread() != closeOnExit) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(closeOnExit);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down, and the hook will find the journal closed
+            }
+        }
+        board.removeBoardListener(recorder);
+        out.close();
+    }
+
+    /**
+     * Starts a journal for a board in the directory named by the minesweeper.journal system property. The journal
+     * closes itself once the game is won or lost, or when the JVM exits first, such as when the window is closed or a
+     * script runs out mid-game, so the moves still in the buffer aren't lost.
+     * @param board the board we want to record (expected to have no moves made yet)
+     * @return the journal, or null if the property isn't set
+     * @throws IOException if the journal can't be created
+     */
+    public static MoveJournal startIfEnabled(Board board) throws IOException {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null)
+            return null;
+
+        Path path = Paths.get(directory, "game-" + System.currentTimeMillis() + "-" + board.getSeed() + ".mswj");
+        MoveJournal journal = new MoveJournal(board, path);
+
+        // Frames closed with EXIT_ON_CLOSE and scripts which stop mid-game end the JVM without finishing the game
+        journal.closeOnExit = new Thread("journal-close") {
+            @Override
+            public void run() {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Could not finish the journal: " + e.getMessage());
+                }
+            }
+        };
+        Runtime.getRuntime().addShutdownHook(journal.closeOnExit);
+
+        board.addBoardListener(new BoardListener() {
+            @Override
+            public void cellsChanged(Board board, ChangeSet changes) {}
+
+            @Override
+            public void gameWon(Board board) {
+                closeQuietly();
+            }
+
+            @Override
+            public void mineHit(Board board, int row, int col) {
+                closeQuietly();
+            }
+
+            private void closeQuietly() {
+                board.removeBoardListener(this);
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Could not finish the journal: " + e.getMessage());
+                }
+            }
+        });
+
+        return journal;
+    }
+
+    /**
+     * Remakes the board of a journal and plays every move in it
+     * @param path where the journal was written
+     * @return the board after the last move
+     * @throws IOException if the journal can't be read or isn't valid
+     */
+    public static Board replay(Path path) throws IOException {
+        return replay(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Remakes the board of a journal and plays the moves up to a certain point
+     * @param path where the journal was written
+     * @param maxMoves how many moves to play
+     * @return the board after the last move played
+     * @throws IOException if the journal can't be read or isn't valid
+     */
+    public static Board replay(Path path, long maxMoves) throws IOException {
+        try (Reader reader = new Reader(Files.newInputStream(path))) {
+            Board board = reader.newBoard();
+            for (long i = 0; i < maxMoves && reader.next(); i++)
+                reader.apply(board);
+            return board;
+        }
+    }
+
+    /**
+     * Reads a journal back one move at a time
+     */
+    public static class Reader implements Closeable {
+        /**
+         * Where the journal is read from
+         */
+        private final DataInputStream in;
+        /**
+         * The width of the board
+         */
+        private final int width;
+        /**
+         * The height of the board
+         */
+        private final int height;
+        /**
+         * How many mines are on the board
+         */
+        private final int totalMines;
+        /**
+         * The seed the mines are placed with
+         */
+        private final long seed;
+        /**
+         * If the mines were placed before the first move
+         */
+        private final boolean minesPlaced;
+        /**
+         * The row of the cell kept safe when placing the mines, or -1 if there wasn't one
+         */
+        private final int safeRow;
+        /**
+         * The column of the cell kept safe when placing the mines, or -1 if there wasn't one
+         */
+        private final int safeCol;
+        /**
+         * When the journal was started in milliseconds since the epoch
+         */
+        private final long startMillis;
+
+        /**
+         * The kind of the current move
+         */
+        private int kind;
+        /**
+         * The flat index of the cell of the current move
+         */
+        private int index;
+        /**
+         * The microseconds between the start of the journal and the current move
+         */
+        private long micros;
+
+        /**
+         * Opens a journal and reads its header
+         * @param stream where the journal is read from (closed along with the reader)
+         * @throws IOException if the header can't be read or isn't valid
+         */
+        public Reader(InputStream stream) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(stream, BUFFER_SIZE));
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("not a move journal");
+
+            int version = in.readUnsignedByte();
+            if (version != VERSION)
+                throw new IOException("unsupported journal version " + version);
+
+            minesPlaced = in.readBoolean();
+            width = in.readInt();
+            height = in.readInt();
+            totalMines = in.readInt();
+            seed = in.readLong();
+            safeRow = in.readInt();
+            safeCol = in.readInt();
+            startMillis = in.readLong();
+        }
+
+        /**
+         * @return a board in the state it was in when the journal was started, with no limit on its undo history so
+         * every undo in the journal can be made again
+         */
+        public Board newBoard() {
+            Board board = minesPlaced ? new Board(width, height, totalMines, seed, safeRow, safeCol)
+                    : new Board(width, height, totalMines, seed, true);
+            board.setHistoryLimit(Integer.MAX_VALUE);
+            return board;
+        }
+
+        /**
+         * Moves on to the next move
+         * @return false if there are no moves left
+         * @throws IOException if the move can't be read
+         */
+        public boolean next() throws IOException {
+            int first = in.read();
+            if (first == -1)
+                return false;
+
+            long entry = readVarLong(in, first);
+            kind = (int) (entry & ((1 << KIND_BITS) - 1));
+            long cell = entry >>> KIND_BITS;
+            if (cell >= (long) width * height)
+                throw new IOException("journal move is off the board");
+
+            index = (int) cell;
+            micros += readVarLong(in, in.read());
+            return true;
+        }
+
+        /**
+         * Plays the current move on a board
+         * @param board the board we want to play the move on
+         * @throws IOException if the move is of an unknown kind
+         */
+        public void apply(Board board) throws IOException {
+            if (kind == REVEAL)
+                board.reveal(index / width, index % width);
+            else if (kind == FLAG)
+                board.flag(index / width, index % width);
+            else if (kind == UNDO)
+                board.undo();
+            else if (kind == REDO)
+                board.redo();
+            else if (kind == CHORD)
+                board.chord(index / width, index % width);
+            else
+                throw new IOException("unknown journal move " + kind);
+        }
+
+        /**
+         * @return the kind of the current move
+         */
+        public int getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the row of the current move
+         */
+        public int getRow() {
+            return index / width;
+        }
+
+        /**
+         * @return the column of the current move
+         */
+        public int getCol() {
+            return index % width;
+        }
+
+        /**
+         * @return the microseconds between the start of the journal and the current move
+         */
+        public long getMicros() {
+            return micros;
+        }
+
+        /**
+         * @return when the journal was started in milliseconds since the epoch
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a non-negative number seven bits at a time, lowest bits first, with the top bit of each byte set if more
+     * bytes follow
+     * @param out where the number is written
+     * @param value the number we want to write
+     * @throws IOException if it can't be written
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Reads a number written by writeVarLong
+     * @param in where the number is read from
+     * @param first the first byte of the number, which has already been read
+     * @return the number
+     * @throws IOException if the number ends early or is too long
+     */
+    private static long readVarLong(DataInputStream in, int first) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int next = first;
+
+        while (true) {
+            if (next == -1)
+                throw new EOFException("journal ends in the middle of a move");
+            else if (shift > 63)
+                throw new IOException("journal has a malformed number");
+
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0)
+                return value;
+
+            shift += 7;
+            next = in.read();
+        }
+    }
+}
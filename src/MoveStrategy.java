@@ -0,0 +1,20 @@
+import java.util.SplittableRandom;
+
+/**
+ * Decides which cell to reveal next in a game played without a front end. Each simulation worker has its own
+ * strategy, so a strategy is only ever used by one thread.
+ * @author Hudson Hadley
+ */
+public interface MoveStrategy {
+    /**
+     * Called before the first move of each game
+     * @param board the board about to be played
+     * @param random the generator the strategy should use for any random choices
+     */
+    void startGame(Board board, SplittableRandom random);
+
+    /**
+     * @return the flat index (row * width + col) of the next cell to reveal, or -1 to give up on the game
+     */
+    int nextMove();
+}
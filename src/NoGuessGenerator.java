@@ -0,0 +1,178 @@
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates boards which can be cleared by logic alone from a given first click, so the player never has to guess.
+ * Candidate layouts keep the first click and its neighbors safe, and are played out by a Solver. Candidates are tried
+ * on every core of the common fork-join pool at once. Candidates are numbered, each with a seed worked out from the
+ * seed of the search and its number, and the lowest numbered candidate the solver clears is returned. That is the
+ * board a search on a single thread would return, so the seed alone decides the board, however the work is split.
+ * @author Hudson Hadley
+ */
+public class NoGuessGenerator {
+    /**
+     * The default amount of candidates to try before giving up on a board
+     */
+    private static final int DEFAULT_MAX_CANDIDATES = 100000;
+
+    /**
+     * The width of the boards
+     */
+    private final int width;
+    /**
+     * The height of the boards
+     */
+    private final int height;
+    /**
+     * How many mines are on the boards
+     */
+    private final int totalMines;
+    /**
+     * How many candidates can be tried for one board before giving up
+     */
+    private final int maxCandidates;
+
+    /**
+     * How long each board took to generate
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    /**
+     * How many boards have been generated
+     */
+    private final AtomicLong boardsGenerated = new AtomicLong();
+    /**
+     * How many candidates have been tried across every board
+     */
+    private final AtomicLong candidatesTried = new AtomicLong();
+
+    /**
+     * Creates a generator for boards of a certain size
+     * @param width the width of the boards
+     * @param height the height of the boards
+     * @param totalMines how many mines are on the boards
+     */
+    public NoGuessGenerator(int width, int height, int totalMines) {
+        this(width, height, totalMines, DEFAULT_MAX_CANDIDATES);
+    }
+
+    /**
+     * Creates a generator for boards of a certain size
+     * @param width the width of the boards
+     * @param height the height of the boards
+     * @param totalMines how many mines are on the boards
+     * @param maxCandidates how many candidates can be tried for one board before giving up
+     */
+    public NoGuessGenerator(int width, int height, int totalMines, int maxCandidates) {
+        this.width = width;
+        this.height = height;
+        this.totalMines = totalMines;
+        this.maxCandidates = maxCandidates;
+    }
+
+    /**
+     * Generates a board which can be cleared by logic alone when the first click is at (safeRow, safeCol)
+     * @param safeRow the row of the first click
+     * @param safeCol the column of the first click
+     * @return a fresh board with nothing revealed
+     * @throws IllegalStateException if no solvable board was found within the allowed amount of candidates
+     */
+    public Board generate(int safeRow, int safeCol) throws IllegalStateException {
+        return generate(safeRow, safeCol, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Generates a board which can be cleared by logic alone when the first click is at (safeRow, safeCol)
+     * @param safeRow the row of the first click
+     * @param safeCol the column of the first click
+     * @param seed the seed the candidate seeds are worked out from (the same seed always gives the same board)
+     * @return a fresh board with nothing revealed
+     * @throws IllegalStateException if no solvable board was found within the allowed amount of candidates
+     */
+    public Board generate(int safeRow, int safeCol, long seed) throws IllegalStateException {
+        long start = System.nanoTime();
+
+        AtomicLong nextCandidate = new AtomicLong();
+        AtomicLong lowestFound = new AtomicLong(Long.MAX_VALUE);
+        AtomicLong tried = new AtomicLong();
+
+        // Every worker claims the next candidate number until a lower one has been found to be solvable
+        int workers = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+        CompletableFuture<?>[] searches = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            searches[i] = CompletableFuture.runAsync(
+                    () -> search(safeRow, safeCol, seed, nextCandidate, lowestFound, tried),
+                    ForkJoinPool.commonPool());
+        }
+        CompletableFuture.allOf(searches).join();
+
+        candidatesTried.addAndGet(tried.get());
+        if (lowestFound.get() == Long.MAX_VALUE)
+            throw new IllegalStateException("no board without guessing found in " + maxCandidates + " candidates");
+
+        Board board = new Board(width, height, totalMines, Seeds.derive(seed, lowestFound.get()), safeRow, safeCol);
+
+        boardsGenerated.incrementAndGet();
+        latencies.record(System.nanoTime() - start);
+        return board;
+    }
+
+    /**
+     * Tries candidates in the order they are claimed until one is solvable, a lower numbered candidate is found to be
+     * solvable, or every candidate has been claimed. Numbers are claimed in increasing order and every claimed number
+     * below a solvable one is tried to the end, so the lowest solvable candidate is always found.
+     * @param safeRow the row of the first click
+     * @param safeCol the column of the first click
+     * @param seed the seed the candidate seeds are worked out from
+     * @param nextCandidate the number of the next candidate to claim
+     * @param lowestFound the lowest number of a solvable candidate so far, or Long.MAX_VALUE if there isn't one
+     * @param tried how many candidates have been tried by every worker
+     */
+    private void search(int safeRow, int safeCol, long seed, AtomicLong nextCandidate, AtomicLong lowestFound,
+                        AtomicLong tried) {
+        long number;
+        while ((number = nextCandidate.getAndIncrement()) < maxCandidates && number < lowestFound.get()) {
+            tried.incrementAndGet();
+            Board candidate = new Board(width, height, totalMines, Seeds.derive(seed, number), safeRow, safeCol);
+            candidate.setHistoryLimit(0);
+
+            Solver solver = new Solver(candidate);
+            if (candidate.reveal(safeRow, safeCol) && solver.solve()) {
+                lowestFound.accumulateAndGet(number, Math::min);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return how long each board took to generate
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return how many boards have been generated
+     */
+    public long getBoardsGenerated() {
+        return boardsGenerated.get();
+    }
+
+    /**
+     * @return how many candidates have been tried across every board
+     */
+    public long getCandidatesTried() {
+        return candidatesTried.get();
+    }
+
+    /**
+     * @return the generation statistics of the boards so far
+     */
+    @Override
+    public String toString() {
+        long boards = boardsGenerated.get();
+        return String.format("boards=%d candidates/board=%.1f %s", boards,
+                boards == 0 ? 0.0 : (double) candidatesTried.get() / boards, latencies);
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Works out independent seeds from one seed, so many games or candidates can each draw from a generator of their own
+ * without depending on the order they are made in.
+ * @author Hudson Hadley
+ */
+final class Seeds {
+    /**
+     * The odd constant consecutive seeds are spaced by (the golden ratio, as SplittableRandom uses)
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Nothing to construct, every method is static
+     */
+    private Seeds() {}
+
+    /**
+     * Works out the seed at a position in the sequence of a seed. This is the same number the (index + 1)-th call to
+     * nextLong would give on a SplittableRandom made with the seed, worked out directly so no position depends on
+     * another.
+     * @param seed the seed the sequence starts from
+     * @param index the position in the sequence, starting at 0
+     * @return the seed at that position
+     */
+    static long derive(long seed, long index) {
+        // Stafford's 64-bit mix, which SplittableRandom uses for its output
+        long z = seed + (index + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
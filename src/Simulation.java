@@ -0,0 +1,193 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Plays large numbers of games without a front end to measure how well a move strategy does. Games are spread over
+ * worker threads, each with its own strategy, and the results are added up once every worker is done. Every game
+ * draws its board and its random choices from a generator of its own, seeded from the seed of the simulation and the
+ * number of the game, so the same seed gives the same results however many threads play and whichever thread happens
+ * to claim each game.
+ * @author Hudson Hadley
+ */
+public class Simulation {
+    /**
+     * The names of the difficulty levels in Board.SIZES
+     */
+    private static final String[] DIFFICULTIES = new String[]{"Beginner", "Intermediate", "Expert"};
+
+    /**
+     * The results of a simulation
+     */
+    public static class Result {
+        /**
+         * How many games were played
+         */
+        private final long games;
+        /**
+         * How many games were won
+         */
+        private final long wins;
+        /**
+         * How many reveal moves were made across every game (a flood fill counts as one)
+         */
+        private final long reveals;
+        /**
+         * How long the simulation took from start to finish in nanoseconds
+         */
+        private final long wallNanos;
+        /**
+         * How many worker threads played the games
+         */
+        private final int threads;
+
+        Result(long games, long wins, long reveals, long wallNanos, int threads) {
+            this.games = games;
+            this.wins = wins;
+            this.reveals = reveals;
+            this.wallNanos = wallNanos;
+            this.threads = threads;
+        }
+
+        /**
+         * @return how many games were played
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * @return the fraction of games which were won
+         */
+        public double getWinRate() {
+            return games == 0 ? 0 : (double) wins / games;
+        }
+
+        /**
+         * @return the average amount of reveals made per game
+         */
+        public double getAverageReveals() {
+            return games == 0 ? 0 : (double) reveals / games;
+        }
+
+        /**
+         * @return how long the simulation took in nanoseconds
+         */
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        /**
+         * @return how many games each worker thread played per second
+         */
+        public double getGamesPerSecondPerThread() {
+            return wallNanos == 0 ? 0 : games / (wallNanos / 1e9) / threads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games=%d win rate=%.2f%% reveals/game=%.1f wall=%.3fs games/s/thread=%.0f",
+                    games, getWinRate() * 100, getAverageReveals(), wallNanos / 1e9, getGamesPerSecondPerThread());
+        }
+    }
+
+    /**
+     * Nothing to construct, every method is static
+     */
+    private Simulation() {}
+
+    /**
+     * Plays a certain amount of games on boards of one size
+     * @param width the width of the boards
+     * @param height the height of the boards
+     * @param totalMines how many mines are on the boards
+     * @param games how many games to play
+     * @param threads how many worker threads to play them on
+     * @param seed the seed every board and every random choice is drawn from
+     * @param strategies makes a new strategy for each worker
+     * @return the results of the games
+     * @throws IllegalArgumentException if games is negative or threads isn't positive
+     */
+    public static Result run(int width, int height, int totalMines, long games, int threads, long seed,
+                             Supplier<MoveStrategy> strategies) throws IllegalArgumentException {
+        if (games < 0 || threads <= 0)
+            throw new IllegalArgumentException("games must be non-negative and threads must be positive");
+
+        AtomicLong nextGame = new AtomicLong();
+        AtomicLong wins = new AtomicLong();
+        AtomicLong reveals = new AtomicLong();
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            Future<?>[] running = new Future<?>[threads];
+            for (int i = 0; i < threads; i++) {
+                MoveStrategy strategy = strategies.get();
+
+                running[i] = workers.submit(() -> {
+                    long workerWins = 0;
+                    long workerReveals = 0;
+
+                    // Keep taking games until they have all been claimed
+                    long game;
+                    while ((game = nextGame.getAndIncrement()) < games) {
+                        SplittableRandom gameRandom = new SplittableRandom(Seeds.derive(seed, game));
+                        Board board = new Board(width, height, totalMines, gameRandom.nextLong());
+                        board.setHistoryLimit(0);
+                        strategy.startGame(board, gameRandom);
+
+                        while (!board.hasWon()) {
+                            int move = strategy.nextMove();
+                            if (move == -1)
+                                break;
+
+                            workerReveals++;
+                            if (!board.reveal(move / width, move % width))
+                                break;
+                        }
+
+                        if (board.hasWon())
+                            workerWins++;
+                    }
+
+                    wins.addAndGet(workerWins);
+                    reveals.addAndGet(workerReveals);
+                });
+            }
+
+            for (Future<?> worker : running)
+                worker.get();
+        } catch (Exception e) {
+            throw new IllegalStateException("simulation failed", e);
+        } finally {
+            workers.shutdown();
+        }
+
+        return new Result(games, wins.get(), reveals.get(), System.nanoTime() - start, threads);
+    }
+
+    /**
+     * Plays games at every difficulty with the solver strategy and prints the results.
+     * Arguments (all optional): games per difficulty, threads, seed
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 100000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : ThreadLocalRandom.current().nextLong();
+
+        System.out.printf("Playing %d games per difficulty on %d threads (seed %d)\n", games, threads, seed);
+        for (int i = 0; i < Board.SIZES.length; i++) {
+            int[] size = Board.SIZES[i];
+            Result result = run(size[0], size[1], size[2], games, threads, seed, SolverStrategy::new);
+            System.out.printf("%-12s %s\n", DIFFICULTIES[i], result);
+        }
+
+        if (Metrics.ENABLED)
+            System.out.println(Metrics.dump());
+    }
+}
@@ -0,0 +1,382 @@
+import java.util.Arrays;
+
+/**
+ * A logic solver which deduces safe cells and mines on a board using only the revealed numbers. Flags are not
+ * trusted, since the player may have placed them wrongly and can take them back, which would leave deductions built on
+ * them standing after their evidence is gone. It keeps a frontier of revealed numbers which still touch unknown
+ * cells, and keeps it up to date by listening to the board instead of rescanning it. Two rules are applied to the
+ * frontier:
+ *      1. Single cell: if a number already touches as many mines as it shows, its other unknown neighbors are safe,
+ *         and if it has exactly as many unknown neighbors as mines left to find, they are all mines.
+ *      2. Subset: if the unknown neighbors of one number are all neighbors of a second number, the cells only the
+ *         second number touches hold the difference of their mines left to find, which can make them all safe or all
+ *         mines.
+ * @author Hudson Hadley
+ */
+public class Solver {
+    /**
+     * Nothing has been deduced about the cell
+     */
+    private static final byte UNKNOWN = 0;
+    /**
+     * The cell has been deduced to be safe
+     */
+    private static final byte SAFE = 1;
+    /**
+     * The cell has been deduced to be a mine
+     */
+    private static final byte MINE = 2;
+
+    /**
+     * The board being solved
+     */
+    private final Board board;
+    /**
+     * The width of the board
+     */
+    private final int width;
+    /**
+     * The height of the board
+     */
+    private final int height;
+    /**
+     * What has been deduced about every cell
+     */
+    private final byte[] knowledge;
+
+    /**
+     * The revealed numbers which may still touch unknown cells. Only the first frontierSize entries are used.
+     */
+    private int[] frontier = new int[64];
+    /**
+     * How many cells are in the frontier
+     */
+    private int frontierSize;
+    /**
+     * If each cell is in the frontier
+     */
+    private final boolean[] inFrontier;
+
+    /**
+     * Cells deduced to be safe which haven't been handed out by nextSafeCell yet
+     */
+    private int[] safeQueue = new int[64];
+    /**
+     * How many cells are in the safe queue
+     */
+    private int safeQueueSize;
+
+    /**
+     * The unknown neighbors of the first cell being compared
+     */
+    private final int[] unknownA = new int[8];
+    /**
+     * The unknown neighbors of the second cell being compared
+     */
+    private final int[] unknownB = new int[8];
+    /**
+     * How many mines are left to find around the cell whose unknown neighbors were last collected
+     */
+    private int minesLeft;
+
+    /**
+     * Creates a solver for a board and starts following the moves made on it. The board may already have cells
+     * revealed.
+     * @param board the board we want to solve
+     */
+    public Solver(Board board) {
+        this.board = board;
+        this.width = board.getWidth();
+        this.height = board.getHeight();
+        this.knowledge = new byte[width * height];
+        this.inFrontier = new boolean[width * height];
+
+        // Pick up anything which was revealed before the solver was made
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (board.isRevealed(i, j))
+                    addToFrontier(i * width + j);
+            }
+        }
+
+        board.addBoardListener(new BoardListener() {
+            @Override
+            public void cellsChanged(Board board, ChangeSet changes) {
+                for (int i = 0; i < changes.size(); i++) {
+                    int index = changes.get(i);
+                    int row = changes.getRow(i);
+                    int col = changes.getCol(i);
+
+                    if (board.isRevealed(row, col)) {
+                        addToFrontier(index);
+                    } else {
+                        // A flag changed, which the solver ignores, or an undo hid the cell again, which gives the
+                        // numbers around it an unknown neighbor once more
+                        addNeighborsToFrontier(row, col);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies the rules to the frontier until nothing more can be deduced
+     * @return true if anything new was deduced
+     */
+    public boolean deduce() {
+        boolean deduced = false;
+
+        while (true) {
+            if (applySingleRule()) {
+                deduced = true;
+            } else if (applySubsetRule()) {
+                deduced = true;
+            } else {
+                return deduced;
+            }
+        }
+    }
+
+    /**
+     * Hands out a cell which has been deduced to be safe and hasn't been revealed yet. Call deduce first.
+     * @return the flat index (row * width + col) of a safe cell, or -1 if there aren't any left
+     */
+    public int nextSafeCell() {
+        while (safeQueueSize > 0) {
+            int index = safeQueue[--safeQueueSize];
+            if (!board.isRevealed(index / width, index % width))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell has been deduced to be a mine
+     */
+    public boolean isKnownMine(int row, int col) {
+        return knowledge[row * width + col] == MINE;
+    }
+
+    /**
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the cell has been deduced to be safe
+     */
+    public boolean isKnownSafe(int row, int col) {
+        return knowledge[row * width + col] == SAFE;
+    }
+
+    /**
+     * Plays the board by revealing deduced safe cells until the board is cleared or nothing more can be deduced.
+     * Nothing is flagged, mines are only remembered by the solver.
+     * @return true if the board was cleared
+     */
+    public boolean solve() {
+        while (!board.hasWon()) {
+            int index;
+            while ((index = nextSafeCell()) != -1) {
+                if (!board.reveal(index / width, index % width))
+                    return false;
+            }
+
+            if (!board.hasWon() && !deduce())
+                break;
+        }
+
+        return board.hasWon();
+    }
+
+    /**
+     * Makes one pass of the single cell rule over the frontier, dropping cells which no longer touch unknown cells
+     * @return true if anything new was deduced
+     */
+    private boolean applySingleRule() {
+        boolean deduced = false;
+        int kept = 0;
+
+        for (int i = 0; i < frontierSize; i++) {
+            int index = frontier[i];
+            int unknowns = collectUnknowns(index, unknownA);
+
+            // Once a number doesn't touch anything unknown it never will again
+            if (unknowns == 0) {
+                inFrontier[index] = false;
+                continue;
+            }
+            frontier[kept++] = index;
+
+            if (minesLeft == 0)
+                deduced |= markAll(unknownA, unknowns, SAFE);
+            else if (minesLeft == unknowns)
+                deduced |= markAll(unknownA, unknowns, MINE);
+        }
+
+        frontierSize = kept;
+        return deduced;
+    }
+
+    /**
+     * Compares every frontier cell against the frontier cells close enough to share neighbors with it, stopping at
+     * the first comparison which deduces something
+     * @return true if anything new was deduced
+     */
+    private boolean applySubsetRule() {
+        for (int i = 0; i < frontierSize; i++) {
+            int a = frontier[i];
+            int unknownsA = collectUnknowns(a, unknownA);
+            int minesLeftA = minesLeft;
+            if (unknownsA == 0)
+                continue;
+
+            int row = a / width;
+            int col = a % width;
+
+            // Only numbers within two cells can share a neighbor
+            for (int r = Math.max(row - 2, 0); r <= Math.min(row + 2, height - 1); r++) {
+                for (int c = Math.max(col - 2, 0); c <= Math.min(col + 2, width - 1); c++) {
+                    int b = r * width + c;
+                    if (b == a || !inFrontier[b])
+                        continue;
+
+                    int unknownsB = collectUnknowns(b, unknownB);
+                    if (unknownsB <= unknownsA || !isSubset(unknownA, unknownsA, unknownB, unknownsB))
+                        continue;
+
+                    // The cells only b touches hold the mines b is missing that a doesn't account for
+                    int difference = removeAll(unknownB, unknownsB, unknownA, unknownsA);
+                    int differenceMines = minesLeft - minesLeftA;
+
+                    if (differenceMines == 0 && markAll(unknownB, difference, SAFE))
+                        return true;
+                    else if (differenceMines == difference && markAll(unknownB, difference, MINE))
+                        return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Collects the unknown neighbors of a revealed number, and works out how many mines it is still missing (stored
+     * in minesLeft). A neighbor is unknown if it isn't revealed and nothing has been deduced about it, whether or not
+     * it is flagged.
+     * @param index the flat index of the revealed number
+     * @param unknowns where the unknown neighbors are stored
+     * @return how many unknown neighbors there are
+     */
+    private int collectUnknowns(int index, int[] unknowns) {
+        int row = index / width;
+        int col = index % width;
+        int number = board.getNumber(row, col);
+        int count = 0;
+        int mines = 0;
+
+        for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, height - 1); i++) {
+            for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, width - 1); j++) {
+                int neighbor = i * width + j;
+                if (board.isRevealed(i, j))
+                    continue;
+
+                if (knowledge[neighbor] == MINE)
+                    mines++;
+                else if (knowledge[neighbor] == UNKNOWN)
+                    unknowns[count++] = neighbor;
+            }
+        }
+
+        minesLeft = number - mines;
+        return count;
+    }
+
+    /**
+     * Records a deduction for a group of cells
+     * @param cells the flat indices of the cells
+     * @param count how many of the cells to use
+     * @param state what the cells have been deduced to be
+     * @return true if anything new was recorded
+     */
+    private boolean markAll(int[] cells, int count, byte state) {
+        boolean changed = false;
+
+        for (int i = 0; i < count; i++) {
+            int index = cells[i];
+            if (knowledge[index] != UNKNOWN)
+                continue;
+
+            knowledge[index] = state;
+            changed = true;
+
+            if (state == SAFE) {
+                if (safeQueueSize == safeQueue.length)
+                    safeQueue = Arrays.copyOf(safeQueue, safeQueueSize * 2);
+                safeQueue[safeQueueSize++] = index;
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * @return true if every one of the first cells is one of the second cells
+     */
+    private static boolean isSubset(int[] first, int firstCount, int[] second, int secondCount) {
+        for (int i = 0; i < firstCount; i++) {
+            boolean found = false;
+            for (int j = 0; j < secondCount && !found; j++)
+                found = first[i] == second[j];
+
+            if (!found)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the cells in toRemove from cells, moving the cells which are left to the front
+     * @return how many cells are left
+     */
+    private static int removeAll(int[] cells, int count, int[] toRemove, int removeCount) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            boolean remove = false;
+            for (int j = 0; j < removeCount && !remove; j++)
+                remove = cells[i] == toRemove[j];
+
+            if (!remove)
+                cells[kept++] = cells[i];
+        }
+        return kept;
+    }
+
+    /**
+     * Adds a revealed cell to the frontier if it shows a number
+     * @param index the flat index of the cell
+     */
+    private void addToFrontier(int index) {
+        if (inFrontier[index] || board.isMine(index / width, index % width)
+                || board.isBlank(index / width, index % width))
+            return;
+
+        if (frontierSize == frontier.length)
+            frontier = Arrays.copyOf(frontier, frontierSize * 2);
+        frontier[frontierSize++] = index;
+        inFrontier[index] = true;
+    }
+
+    /**
+     * Adds the revealed neighbors of a cell to the frontier
+     * @param row the row of the cell
+     * @param col the column of the cell
+     */
+    private void addNeighborsToFrontier(int row, int col) {
+        for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, height - 1); i++) {
+            for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, width - 1); j++) {
+                if (board.isRevealed(i, j))
+                    addToFrontier(i * width + j);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+import java.util.SplittableRandom;
+
+/**
+ * Plays by revealing the cells a Solver deduces to be safe, and guessing a random hidden cell which isn't a known
+ * mine when the solver is stuck.
+ * @author Hudson Hadley
+ */
+public class SolverStrategy implements MoveStrategy {
+    /**
+     * How many random cells to try before falling back to scanning the board for a guess
+     */
+    private static final int RANDOM_GUESSES = 32;
+
+    /**
+     * The board being played
+     */
+    private Board board;
+    /**
+     * The solver following the board
+     */
+    private Solver solver;
+    /**
+     * The generator used for guesses
+     */
+    private SplittableRandom random;
+
+    @Override
+    public void startGame(Board board, SplittableRandom random) {
+        this.board = board;
+        this.solver = new Solver(board);
+        this.random = random;
+    }
+
+    @Override
+    public int nextMove() {
+        int safe = solver.nextSafeCell();
+        if (safe == -1 && solver.deduce())
+            safe = solver.nextSafeCell();
+
+        return safe != -1 ? safe : guess();
+    }
+
+    /**
+     * @return a random hidden cell which isn't a known mine, or -1 if there are none
+     */
+    private int guess() {
+        int width = board.getWidth();
+        int size = width * board.getHeight();
+
+        // Most of the board is usually hidden, so a few random tries nearly always land on a candidate
+        for (int i = 0; i < RANDOM_GUESSES; i++) {
+            int index = random.nextInt(size);
+            if (isCandidate(index / width, index % width))
+                return index;
+        }
+
+        // Otherwise start scanning from a random cell so the guess is still spread over the board
+        int start = random.nextInt(size);
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % size;
+            if (isCandidate(index / width, index % width))
+                return index;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return true if the cell is hidden, unflagged, and not known to be a mine
+     */
+    private boolean isCandidate(int row, int col) {
+        return !board.isRevealed(row, col) && !board.hasFlag(row, col) && !solver.isKnownMine(row, col);
+    }
+}
@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bitboard numbering, both sequential and striped over the fork-join pool, against counting the mines
+ * around every cell one neighbor at a time.
+ * @author Hudson Hadley
+ */
+class BitboardNumberingTest {
+    /**
+     * Makes storage with mines scattered at random
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param density out of every 100 cells, about how many are mines
+     * @param seed where the mines are drawn from
+     * @return the storage, with no numbers yet
+     */
+    private static BoardStorage randomMines(int width, int height, int density, long seed) {
+        BoardStorage storage = new BoardStorage(width, height);
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < storage.size(); i++) {
+            if (random.nextInt(100) < density)
+                storage.makeMine(i);
+        }
+        return storage;
+    }
+
+    /**
+     * Makes a copy of the mines of some storage, with no numbers
+     * @param storage the storage we want to copy
+     * @return the copy
+     */
+    private static BoardStorage copyMines(BoardStorage storage) {
+        BoardStorage copy = new BoardStorage(storage.getWidth(), storage.getHeight());
+        for (int i = 0; i < storage.size(); i++) {
+            if (storage.isMine(i))
+                copy.makeMine(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Counts the mines around a cell by looking at each of its neighbors
+     * @param storage the storage of the board
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return how many neighbors of the cell are mines
+     */
+    private static int countNeighbors(BoardStorage storage, int row, int col) {
+        int count = 0;
+        for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, storage.getHeight() - 1); i++) {
+            for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, storage.getWidth() - 1); j++) {
+                if ((i != row || j != col) && storage.isMine(storage.index(i, j)))
+                    count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Numbers copies of a board both ways and checks every cell against counting its neighbors
+     * @param storage the storage of the board, with no numbers yet
+     */
+    private static void assertNumbersMatch(BoardStorage storage) {
+        BoardStorage sequential = copyMines(storage);
+        BoardStorage parallel = copyMines(storage);
+        BitboardNumbering.number(sequential);
+        BitboardNumbering.numberParallel(parallel);
+
+        String size = storage.getWidth() + "x" + storage.getHeight();
+        for (int i = 0; i < storage.getHeight(); i++) {
+            for (int j = 0; j < storage.getWidth(); j++) {
+                int index = storage.index(i, j);
+                int expected = storage.isMine(index) ? -1 : countNeighbors(storage, i, j);
+                String cell = size + " cell " + i + ", " + j;
+
+                assertEquals(expected, sequential.getNumber(index), "sequential " + cell);
+                assertEquals(expected, parallel.getNumber(index), "parallel " + cell);
+            }
+        }
+    }
+
+    @Test
+    void widthsAroundWordBoundaries() {
+        // Columns 63 and 64 sit on either side of a word boundary, which the shifts have to carry across
+        int[] widths = {1, 2, 3, 63, 64, 65, 127, 128, 129, 200};
+        long seed = 1;
+        for (int width : widths) {
+            for (int height = 1; height <= 4; height++)
+                assertNumbersMatch(randomMines(width, height, 30, seed++));
+        }
+    }
+
+    @Test
+    void emptyAndFullBoards() {
+        assertNumbersMatch(randomMines(70, 10, 0, 1));
+        assertNumbersMatch(randomMines(70, 10, 100, 2));
+    }
+
+    @Test
+    void denseAndSparseBoards() {
+        long seed = 1;
+        for (int density = 5; density <= 95; density += 15)
+            assertNumbersMatch(randomMines(100, 50, density, seed++));
+    }
+
+    @Test
+    void boardsSplitIntoManyStripes() {
+        // Each stripe holds about 65536 cells, so these boards are split across many tasks, including at odd rows
+        assertNumbersMatch(randomMines(1000, 333, 20, 1));
+        assertNumbersMatch(randomMines(4097, 97, 20, 2));
+
+        // Large enough that number itself hands the board to the fork-join pool when it has more than one thread
+        BoardStorage large = randomMines(1200, 900, 20, 3);
+        assertTrue(large.size() >= BitboardNumbering.PARALLEL_THRESHOLD);
+        assertNumbersMatch(large);
+    }
+}
@@ -0,0 +1,171 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the count of safe cells left, which hasWon relies on, always matches a scan of the whole board.
+ * @author Hudson Hadley
+ */
+class BoardSafeCellsTest {
+    /**
+     * Counts the hidden cells which aren't mines by looking at every cell
+     * @param board the board
+     * @return how many safe cells are left
+     */
+    private static int scanSafeCellsLeft(Board board) {
+        // A board waiting for its first reveal has no mines yet, but already counts them out
+        if (!board.hasPlacedMines())
+            return board.getWidth() * board.getHeight() - board.getTotalMines();
+
+        int left = 0;
+        for (int i = 0; i < board.getHeight(); i++) {
+            for (int j = 0; j < board.getWidth(); j++) {
+                if (!board.isMine(i, j) && !board.isRevealed(i, j))
+                    left++;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Checks the counter and hasWon against a scan of the board
+     * @param board the board
+     */
+    private static void assertMatchesScan(Board board) {
+        int scanned = scanSafeCellsLeft(board);
+        assertEquals(scanned, board.getSafeCellsLeft());
+        assertEquals(scanned == 0, board.hasWon());
+    }
+
+    @Test
+    void newBoardCountsEverySafeCell() {
+        Board board = new Board(30, 16, 99, 1L);
+        assertEquals(30 * 16 - 99, board.getSafeCellsLeft());
+        assertMatchesScan(board);
+
+        Board lazy = new Board(30, 16, 99, 1L, true);
+        assertEquals(30 * 16 - 99, lazy.getSafeCellsLeft());
+        lazy.reveal(8, 15);
+        assertMatchesScan(lazy);
+    }
+
+    @Test
+    void floodFillCountsEveryCellItOpens() {
+        Board board = new Board(30, 16, 20, 2L, 8, 15);
+        int before = board.getSafeCellsLeft();
+
+        board.reveal(8, 15);
+        assertTrue(board.getChanges().size() > 1);
+        assertEquals(before - board.getChanges().size(), board.getSafeCellsLeft());
+        assertMatchesScan(board);
+    }
+
+    @Test
+    void flagsDoNotChangeTheCount() {
+        Board board = new Board(16, 16, 40, 3L);
+        int before = board.getSafeCellsLeft();
+
+        for (int i = 0; i < 16; i++) {
+            board.flag(i, i);
+            assertEquals(before, board.getSafeCellsLeft());
+            assertMatchesScan(board);
+        }
+        for (int i = 0; i < 16; i++)
+            board.flag(i, i);
+        assertEquals(before, board.getSafeCellsLeft());
+    }
+
+    @Test
+    void repeatedRevealsOnlyCountOnce() {
+        Board board = new Board(16, 16, 40, 4L, 8, 8);
+        board.reveal(8, 8);
+        int after = board.getSafeCellsLeft();
+
+        // Every cell the first reveal opened, revealed again
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 16; j++) {
+                if (board.isRevealed(i, j))
+                    board.reveal(i, j);
+            }
+        }
+        assertEquals(after, board.getSafeCellsLeft());
+        assertMatchesScan(board);
+    }
+
+    @Test
+    void hittingAMineDoesNotCount() {
+        Board board = new Board(9, 9, 10, 5L);
+        int before = board.getSafeCellsLeft();
+
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                if (board.isMine(i, j)) {
+                    assertFalse(board.reveal(i, j));
+                    assertEquals(before, board.getSafeCellsLeft());
+                    assertMatchesScan(board);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Test
+    void winIsDetectedOnTheLastSafeCell() {
+        Board board = new Board(30, 16, 99, 6L);
+
+        for (int i = 0; i < 16; i++) {
+            for (int j = 0; j < 30; j++) {
+                if (board.isMine(i, j) || board.isRevealed(i, j))
+                    continue;
+
+                assertFalse(board.hasWon());
+                board.reveal(i, j);
+                assertMatchesScan(board);
+            }
+        }
+        assertTrue(board.hasWon());
+        assertEquals(0, board.getSafeCellsLeft());
+    }
+
+    @Test
+    void randomPlayMatchesScanAfterEveryMove() {
+        SplittableRandom random = new SplittableRandom(7);
+
+        for (int game = 0; game < 200; game++) {
+            int width = 5 + random.nextInt(30);
+            int height = 5 + random.nextInt(20);
+            int mines = random.nextInt(width * height / 4 + 1);
+            Board board = new Board(width, height, mines, random.nextLong(), random.nextBoolean());
+
+            for (int move = 0; move < 200; move++) {
+                int row = random.nextInt(height);
+                int col = random.nextInt(width);
+
+                switch (random.nextInt(5)) {
+                    case 0:
+                    case 1:
+                        if (!board.hasFlag(row, col))
+                            board.reveal(row, col);
+                        break;
+                    case 2:
+                        if (!board.isRevealed(row, col))
+                            board.flag(row, col);
+                        break;
+                    case 3:
+                        board.chord(row, col);
+                        break;
+                    default:
+                        if (random.nextBoolean())
+                            board.undo();
+                        else
+                            board.redo();
+                }
+                assertMatchesScan(board);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a board loaded from a snapshot plays on exactly like the board which was saved.
+ * @author Hudson Hadley
+ */
+class BoardSnapshotTest {
+    /**
+     * How many random moves are played before the board is saved
+     */
+    private static final int MOVES_BEFORE = 40;
+    /**
+     * How many random moves are played on both boards after it is loaded
+     */
+    private static final int MOVES_AFTER = 200;
+
+    /**
+     * Checks that two boards are in the same state, cell by cell
+     * @param expected the board which was saved
+     * @param actual the board which was loaded
+     */
+    private static void assertSameState(Board expected, Board actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        assertEquals(expected.getTotalMines(), actual.getTotalMines());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        assertEquals(expected.hasPlacedMines(), actual.hasPlacedMines());
+        assertEquals(expected.getFlagCount(), actual.getFlagCount());
+        assertEquals(expected.getSafeCellsLeft(), actual.getSafeCellsLeft());
+        assertEquals(expected.hasWon(), actual.hasWon());
+        assertEquals(expected.hasHitMine(), actual.hasHitMine());
+
+        for (int i = 0; i < expected.getHeight(); i++) {
+            for (int j = 0; j < expected.getWidth(); j++) {
+                String cell = "cell " + i + ", " + j;
+                assertEquals(expected.hasFlag(i, j), actual.hasFlag(i, j), cell);
+                assertEquals(expected.isRevealed(i, j), actual.isRevealed(i, j), cell);
+                if (!expected.hasPlacedMines())
+                    continue;
+
+                assertEquals(expected.isMine(i, j), actual.isMine(i, j), cell);
+                if (!expected.isMine(i, j))
+                    assertEquals(expected.getNumber(i, j), actual.getNumber(i, j), cell);
+            }
+        }
+    }
+
+    /**
+     * Plays a random move on a board. Reveals avoid known mines, so the game keeps going long enough to test.
+     * @param board the board the move is played on
+     * @param random where the move is drawn from
+     */
+    private static void playMove(Board board, SplittableRandom random) {
+        int row = random.nextInt(board.getHeight());
+        int col = random.nextInt(board.getWidth());
+
+        switch (random.nextInt(4)) {
+            case 0:
+            case 1:
+                if (!board.hasFlag(row, col) && !(board.hasPlacedMines() && board.isMine(row, col)))
+                    board.reveal(row, col);
+                break;
+            case 2:
+                if (!board.isRevealed(row, col))
+                    board.flag(row, col);
+                break;
+            default:
+                board.chord(row, col);
+        }
+    }
+
+    /**
+     * Plays part of a game, saves and loads the board, then plays the same moves on both boards and compares them
+     * after every move
+     * @param board the board to play on
+     * @param seed where the moves are drawn from
+     * @param path where the board is saved
+     * @throws IOException if the snapshot can't be written or read
+     */
+    private static void assertRoundTrip(Board board, long seed, Path path) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int move = 0; move < MOVES_BEFORE; move++)
+            playMove(board, random);
+
+        BoardSnapshot.save(board, path);
+        Board loaded = BoardSnapshot.load(path);
+        assertSameState(board, loaded);
+
+        // Both boards draw the same moves from generators made with the same seed
+        long movesSeed = random.nextLong();
+        SplittableRandom savedRandom = new SplittableRandom(movesSeed);
+        SplittableRandom loadedRandom = new SplittableRandom(movesSeed);
+        for (int move = 0; move < MOVES_AFTER; move++) {
+            playMove(board, savedRandom);
+            playMove(loaded, loadedRandom);
+            assertSameState(board, loaded);
+        }
+    }
+
+    @Test
+    void savedGameContinuesTheSame(@TempDir Path directory) throws IOException {
+        for (long seed = 1; seed <= 10; seed++)
+            assertRoundTrip(new Board(30, 16, 99, seed), seed, directory.resolve("game" + seed + ".msws"));
+    }
+
+    @Test
+    void savedGameWithSafeFirstClickContinuesTheSame(@TempDir Path directory) throws IOException {
+        for (long seed = 1; seed <= 10; seed++)
+            assertRoundTrip(new Board(30, 16, 99, seed, true), seed, directory.resolve("game" + seed + ".msws"));
+    }
+
+    @Test
+    void boardSavedBeforeTheFirstClickPlacesTheSameMines(@TempDir Path directory) throws IOException {
+        Path path = directory.resolve("game.msws");
+        Board board = new Board(16, 16, 40, 3L, true);
+        board.flag(0, 0);
+
+        BoardSnapshot.save(board, path);
+        Board loaded = BoardSnapshot.load(path);
+        assertSameState(board, loaded);
+
+        board.reveal(8, 8);
+        loaded.reveal(8, 8);
+        assertSameState(board, loaded);
+    }
+}
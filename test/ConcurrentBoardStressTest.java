@@ -0,0 +1,91 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Hammers a single ConcurrentBoard with random reveals and flags from several threads at once, then checks the
+ * invariants of the board once every thread is done. The board, the threads and the moves are kept small enough for
+ * the test to finish in a few seconds.
+ * @author Hudson Hadley
+ */
+class ConcurrentBoardStressTest {
+    /**
+     * The width and height of the board
+     */
+    private static final int SIZE = 256;
+    /**
+     * How many moves each thread plays
+     */
+    private static final int MOVES = 20000;
+    /**
+     * Out of every 10 moves, how many are flags rather than reveals
+     */
+    private static final int FLAGS_IN_TEN = 2;
+
+    @Test
+    @Timeout(value = 60, unit = TimeUnit.SECONDS)
+    void invariantsHoldUnderContention() throws InterruptedException {
+        for (int threads = 1; threads <= 8; threads *= 2) {
+            ConcurrentBoard board = new ConcurrentBoard(SIZE, SIZE, SIZE * SIZE / 6, threads);
+            play(board, threads, threads);
+
+            board.checkInvariants();
+        }
+    }
+
+    /**
+     * Plays random moves on a board from several threads at once
+     * @param board the board the moves are played on
+     * @param threads how many threads play at once
+     * @param seed where the moves of every thread are drawn from
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void play(ConcurrentBoard board, int threads, long seed) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        SplittableRandom random = new SplittableRandom(seed);
+
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom playerRandom = random.split();
+            Thread player = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < MOVES; i++) {
+                            int row = playerRandom.nextInt(board.getHeight());
+                            int col = playerRandom.nextInt(board.getWidth());
+
+                            if (playerRandom.nextInt(10) < FLAGS_IN_TEN) {
+                                board.flag(row, col);
+                            } else {
+                                try {
+                                    board.reveal(row, col);
+                                } catch (IllegalArgumentException ignore) {
+                                    // The cell is flagged, possibly by another player, so nothing happens
+                                }
+                            }
+                        }
+                    } catch (Throwable e) {
+                        error.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "player-" + t);
+            player.setDaemon(true);
+            player.start();
+        }
+
+        start.countDown();
+        done.await();
+        assertNull(error.get(), "a player failed");
+    }
+}
@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the game server turns away requests it can't play, rather than opening sessions which fail later, and
+ * that stopping it closes the connections which are still open.
+ * @author Hudson Hadley
+ */
+class GameServerTest {
+    /**
+     * Handles a single request
+     * @param server the server
+     * @param request the request
+     * @return the response
+     */
+    private static String handle(GameServer server, String request) {
+        StringBuilder response = new StringBuilder();
+        server.handle(request, response);
+        return response.toString();
+    }
+
+    @Test
+    void newGameChecksTheMines() throws Exception {
+        GameServer server = new GameServer(0, 60000, 1000);
+        try {
+            assertTrue(handle(server, "NEW 10 10 -5").startsWith("ERR"));
+            assertTrue(handle(server, "NEW 10 10 100").startsWith("ERR"));
+            assertTrue(handle(server, "NEW 100 100 5").startsWith("ERR"));
+            assertTrue(handle(server, "NEW 4 1").startsWith("ERR"));
+
+            assertEquals("OK 1 10 10 99", handle(server, "NEW 10 10 99 7"));
+            assertTrue(handle(server, "R 1 5 5").startsWith("OK"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void stopClosesOpenConnections() throws Exception {
+        GameServer server = new GameServer(0, 60000);
+        server.start();
+
+        try (Socket client = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            client.setSoTimeout(5000);
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(),
+                    StandardCharsets.US_ASCII));
+            OutputStream out = client.getOutputStream();
+
+            out.write("STATS\n".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            assertTrue(in.readLine().startsWith("OK"));
+
+            server.stop();
+
+            // The server end is closed, so the request either can't be sent or is never answered
+            String answer;
+            try {
+                out.write("STATS\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                answer = in.readLine();
+            } catch (IOException e) {
+                answer = null;
+            }
+            assertNull(answer);
+        }
+    }
+}
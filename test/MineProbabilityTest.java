@@ -0,0 +1,185 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the probabilities of MineProbability against enumerating every way the remaining mines could lie on small
+ * boards.
+ * @author Hudson Hadley
+ */
+class MineProbabilityTest {
+    /**
+     * How far a probability may be from the enumerated one
+     */
+    private static final double TOLERANCE = 1e-9;
+
+    /**
+     * Works out the probability of each cell being a mine by trying every way of placing the mines which are left on
+     * the hidden cells, and keeping the ones which agree with every revealed number
+     * @param board the board, with no mines revealed
+     * @return the probability of each cell being a mine, indexed by row * width + col
+     */
+    private static double[] enumerate(Board board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        List<Integer> hidden = new ArrayList<>();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (!board.isRevealed(i, j))
+                    hidden.add(i * width + j);
+            }
+        }
+
+        boolean[] mines = new boolean[width * height];
+        long[] minesAt = new long[width * height];
+        long layouts = enumerate(board, hidden, 0, board.getTotalMines(), mines, minesAt);
+        assertTrue(layouts > 0, "the board has no consistent layout");
+
+        double[] probabilities = new double[width * height];
+        for (int index : hidden)
+            probabilities[index] = (double) minesAt[index] / layouts;
+        return probabilities;
+    }
+
+    /**
+     * Places the mines which are left on the hidden cells from a position onward in every possible way
+     * @param board the board
+     * @param hidden the hidden cells
+     * @param from the first hidden cell which may still be given a mine
+     * @param minesLeft how many mines are still to be placed
+     * @param mines which cells have been given a mine so far
+     * @param minesAt for every cell, how many consistent layouts found so far have a mine there
+     * @return how many consistent layouts there are
+     */
+    private static long enumerate(Board board, List<Integer> hidden, int from, int minesLeft, boolean[] mines,
+                                  long[] minesAt) {
+        if (minesLeft == 0) {
+            if (!consistent(board, mines))
+                return 0;
+
+            for (int index : hidden) {
+                if (mines[index])
+                    minesAt[index]++;
+            }
+            return 1;
+        }
+
+        long layouts = 0;
+        for (int k = from; k <= hidden.size() - minesLeft; k++) {
+            int index = hidden.get(k);
+            mines[index] = true;
+            layouts += enumerate(board, hidden, k + 1, minesLeft - 1, mines, minesAt);
+            mines[index] = false;
+        }
+        return layouts;
+    }
+
+    /**
+     * @param board the board
+     * @param mines which cells are mines in the layout
+     * @return true if every revealed number touches as many mines in the layout as it says
+     */
+    private static boolean consistent(Board board, boolean[] mines) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (!board.isRevealed(i, j))
+                    continue;
+
+                int count = 0;
+                for (int r = Math.max(i - 1, 0); r <= Math.min(i + 1, height - 1); r++) {
+                    for (int c = Math.max(j - 1, 0); c <= Math.min(j + 1, width - 1); c++) {
+                        if (mines[r * width + c])
+                            count++;
+                    }
+                }
+                if (count != board.getNumber(i, j))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks every probability of a board against enumeration
+     * @param board the board, with no mines revealed
+     */
+    private static void assertMatchesEnumeration(Board board) {
+        double[] expected = enumerate(board);
+        double[] actual = new MineProbability(board).compute();
+
+        assertEquals(expected.length, actual.length);
+        int width = board.getWidth();
+        for (int i = 0; i < expected.length; i++)
+            assertEquals(expected[i], actual[i], TOLERANCE, "cell " + i / width + ", " + i % width);
+    }
+
+    /**
+     * Reveals random safe cells of a board, and flags some random hidden cells, rightly or wrongly
+     * @param board the board
+     * @param reveals how many reveals to try
+     * @param random where the cells are drawn from
+     */
+    private static void playSafely(Board board, int reveals, SplittableRandom random) {
+        for (int move = 0; move < reveals && !board.hasWon(); move++) {
+            int row = random.nextInt(board.getHeight());
+            int col = random.nextInt(board.getWidth());
+            if (!board.isMine(row, col) && !board.hasFlag(row, col))
+                board.reveal(row, col);
+        }
+
+        for (int flag = 0; flag < 3; flag++) {
+            int row = random.nextInt(board.getHeight());
+            int col = random.nextInt(board.getWidth());
+            if (!board.isRevealed(row, col))
+                board.flag(row, col);
+        }
+    }
+
+    @Test
+    void untouchedBoardIsUniform() {
+        Board board = new Board(4, 4, 5, 1L);
+        double[] probabilities = new MineProbability(board).compute();
+        for (double probability : probabilities)
+            assertEquals(5.0 / 16, probability, TOLERANCE);
+        assertMatchesEnumeration(board);
+    }
+
+    @Test
+    void randomPositionsMatchEnumeration() {
+        SplittableRandom random = new SplittableRandom(8);
+        int[][] sizes = {{5, 5, 4}, {5, 5, 6}, {6, 4, 5}, {6, 6, 6}, {7, 3, 5}, {4, 6, 7}};
+
+        for (int[] size : sizes) {
+            for (int game = 0; game < 10; game++) {
+                Board board = new Board(size[0], size[1], size[2], random.nextLong());
+                playSafely(board, 1 + random.nextInt(6), random);
+                assertMatchesEnumeration(board);
+            }
+        }
+    }
+
+    @Test
+    void answersStayRightAfterMoreMoves() {
+        // The engine remembers components between calls, so asking again after each move tests the cache too
+        SplittableRandom random = new SplittableRandom(9);
+        for (int game = 0; game < 10; game++) {
+            Board board = new Board(6, 5, 6, random.nextLong());
+            MineProbability probability = new MineProbability(board);
+
+            for (int move = 0; move < 6 && !board.hasWon(); move++) {
+                playSafely(board, 1, random);
+                double[] expected = enumerate(board);
+                double[] actual = probability.compute();
+                for (int i = 0; i < expected.length; i++)
+                    assertEquals(expected[i], actual[i], TOLERANCE, "game " + game + " move " + move + " cell " + i);
+            }
+        }
+    }
+}
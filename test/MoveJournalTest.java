@@ -0,0 +1,45 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that a journal keeps the file up to date while the game goes on, and replays to the same board.
+ * @author Hudson Hadley
+ */
+class MoveJournalTest {
+    /**
+     * How long the test waits for the journal to write out its buffer in milliseconds
+     */
+    private static final long WAIT_MILLIS = 2000;
+
+    @Test
+    void burstOfMovesReachesTheFileWithoutClosing(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("game.mswj");
+        Board board = new Board(30, 16, 99, 11L);
+        MoveJournal journal = new MoveJournal(board, path);
+
+        // Flags can be placed and removed anywhere without ending the game
+        for (int i = 0; i < 20; i++)
+            board.flag(i % 16, i);
+        assertEquals(20, journal.getMoves());
+
+        // The moves are written out by the journal itself, without a flush or close
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        Board replayed = MoveJournal.replay(path);
+        while (replayed.getFlagCount() != board.getFlagCount() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            replayed = MoveJournal.replay(path);
+        }
+        assertEquals(board.getFlagCount(), replayed.getFlagCount());
+        for (int i = 0; i < 20; i++)
+            assertEquals(board.hasFlag(i % 16, i), replayed.hasFlag(i % 16, i));
+
+        long size = Files.size(path);
+        journal.close();
+        assertEquals(size, Files.size(path));
+    }
+}
@@ -0,0 +1,53 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that the seed alone decides the board a NoGuessGenerator makes, and that the board can be cleared by logic.
+ * @author Hudson Hadley
+ */
+class NoGuessGeneratorTest {
+    /**
+     * Checks that two boards have their mines in the same cells
+     * @param expected the first board
+     * @param actual the second board
+     */
+    private static void assertSameMines(Board expected, Board actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int i = 0; i < expected.getHeight(); i++) {
+            for (int j = 0; j < expected.getWidth(); j++)
+                assertEquals(expected.isMine(i, j), actual.isMine(i, j), "mine at " + i + ", " + j);
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameBoard() {
+        NoGuessGenerator generator = new NoGuessGenerator(16, 16, 40);
+        for (long seed = 1; seed <= 5; seed++) {
+            Board first = generator.generate(8, 8, seed);
+            Board second = new NoGuessGenerator(16, 16, 40).generate(8, 8, seed);
+
+            assertSameMines(first, second);
+            assertEquals(first.getSeed(), second.getSeed());
+        }
+        assertEquals(5, generator.getBoardsGenerated());
+    }
+
+    @Test
+    void generatedBoardIsSolvedWithoutGuessing() {
+        NoGuessGenerator generator = new NoGuessGenerator(30, 16, 99);
+        for (long seed = 1; seed <= 5; seed++) {
+            Board board = generator.generate(8, 15, seed);
+            assertFalse(board.isMine(8, 15));
+
+            // The solver only reveals cells it has deduced to be safe, so clearing the board needs no guesses
+            Solver solver = new Solver(board);
+            assertTrue(board.reveal(8, 15));
+            assertTrue(solver.solve());
+            assertFalse(board.hasHitMine());
+        }
+    }
+}
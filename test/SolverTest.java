@@ -0,0 +1,84 @@
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Checks that the solver's deductions are always right, whatever the player has flagged.
+ * @author Hudson Hadley
+ */
+class SolverTest {
+    /**
+     * Checks that no cell the solver thinks is safe is a mine, and no cell it thinks is a mine is safe
+     * @param board the board
+     * @param solver the solver following the board
+     */
+    private static void assertDeductionsHold(Board board, Solver solver) {
+        for (int i = 0; i < board.getHeight(); i++) {
+            for (int j = 0; j < board.getWidth(); j++) {
+                assertFalse(solver.isKnownSafe(i, j) && board.isMine(i, j),
+                        "mine at " + i + ", " + j + " deduced safe");
+                assertFalse(solver.isKnownMine(i, j) && !board.isMine(i, j), "safe " + i + ", " + j + " deduced mine");
+            }
+        }
+    }
+
+    @Test
+    void wrongFlagTakenBackLeavesNoWrongDeductions() {
+        for (long seed = 1; seed < 200; seed++) {
+            Board board = new Board(16, 16, 40, seed, 8, 8);
+            board.reveal(8, 8);
+
+            // Look for a revealed 1 touching one hidden mine and at least one hidden safe cell
+            for (int row = 0; row < 16; row++) {
+                for (int col = 0; col < 16; col++) {
+                    if (!board.isRevealed(row, col) || board.isMine(row, col) || board.getNumber(row, col) != 1)
+                        continue;
+
+                    int safeRow = -1;
+                    int safeCol = -1;
+                    for (int i = Math.max(row - 1, 0); i <= Math.min(row + 1, 15); i++) {
+                        for (int j = Math.max(col - 1, 0); j <= Math.min(col + 1, 15); j++) {
+                            if (!board.isRevealed(i, j) && !board.isMine(i, j)) {
+                                safeRow = i;
+                                safeCol = j;
+                            }
+                        }
+                    }
+                    if (safeRow == -1)
+                        continue;
+
+                    Solver solver = new Solver(board);
+                    board.flag(safeRow, safeCol);
+                    solver.deduce();
+                    board.flag(safeRow, safeCol);
+                    assertFalse(board.hasFlag(safeRow, safeCol));
+
+                    solver.deduce();
+                    assertDeductionsHold(board, solver);
+
+                    solver.solve();
+                    assertFalse(board.hasHitMine());
+                    assertDeductionsHold(board, solver);
+                    return;
+                }
+            }
+        }
+
+        fail("no board with a 1 next to a hidden safe cell");
+    }
+
+    @Test
+    void solverNeverHitsAMine() {
+        for (long seed = 1; seed <= 50; seed++) {
+            Board board = new Board(30, 16, 99, seed, 8, 15);
+            Solver solver = new Solver(board);
+            assertTrue(board.reveal(8, 15));
+
+            solver.solve();
+            assertFalse(board.hasHitMine());
+            assertDeductionsHold(board, solver);
+        }
+    }
+}